@@ -0,0 +1,75 @@
+package server;
+
+import schema.Question;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Dados e servidores de apoio dos benchmarks (mesmo pacote do servidor para usar as classes internas)
+final class BenchData {
+    static {
+        Log.setLevel(Log.Level.ERROR); // Sem [CONNECT]/[GAME] por operação medida
+    }
+
+    private BenchData() {}
+
+    static Question question(int i) {
+        return new Question("Tópico " + (i % 50), "Pergunta número " + i + " do benchmark?",
+                List.of("alternativa a" + i, "alternativa b", "alternativa c", "alternativa d"), i % 4);
+    }
+
+    // Arquivo PSV com n perguntas num diretório temporário novo
+    static Path psvFile(int n) throws IOException {
+        Path dir = Files.createTempDirectory("qaquiz-bench");
+        Path file = dir.resolve("questions.psv");
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("#PEERS "); w.newLine();
+            for (int i = 0; i < n; i++) { w.write(question(i).toPSV()); w.newLine(); }
+        }
+        return file;
+    }
+
+    // Caminho para um arquivo de dados ainda inexistente (o servidor cria as seeds)
+    static Path emptyDataFile() throws IOException {
+        return Files.createTempDirectory("qaquiz-bench").resolve("questions.psv");
+    }
+
+    // Cópia de um arquivo de dados num diretório temporário novo (outro servidor com o mesmo banco)
+    static Path copyOf(Path data) throws IOException {
+        Path copy = Files.createTempDirectory("qaquiz-bench").resolve(data.getFileName());
+        return Files.copy(data, copy);
+    }
+
+    static void deleteDir(Path fileInDir) {
+        try (Stream<Path> files = Files.walk(fileInDir.getParent())) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException ignore) {}
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) { return s.getLocalPort(); }
+    }
+
+    // Sobe um servidor em thread daemon (vive até o fim do fork do JMH) e espera a porta abrir
+    static QAQuizServer startServer(Path data, ConnectionEngine engine, int port) throws Exception {
+        QAQuizServer server = new QAQuizServer("127.0.0.1", port, data.toString(), engine);
+        Thread t = new Thread(() -> {
+            try { server.serveForever(); } catch (IOException e) { throw new RuntimeException(e); }
+        }, "bench-server-" + port);
+        t.setDaemon(true);
+        t.start();
+        for (int i = 0; i < 500; i++) {
+            try (Socket probe = new Socket("127.0.0.1", port)) { return server; }
+            catch (IOException notYet) { Thread.sleep(10); }
+        }
+        throw new IOException("servidor não abriu a porta " + port);
+    }
+}
@@ -0,0 +1,27 @@
+package server;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Ponto de entrada do benchmarks.jar: aceita as opções normais do JMH e, se não forem informadas,
+// grava os resultados em JSON (jmh-results.json) com o profiler de GC (taxa de alocação).
+//   java -jar bench/target/benchmarks.jar                 # tudo
+//   java -jar bench/target/benchmarks.jar PsvBench -rff psv.json
+public final class BenchMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList()) { // -h / -l: comportamento padrão do JMH
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder opts = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) opts.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) opts.result("jmh-results.json");
+        if (cli.getProfilers().isEmpty()) opts.addProfiler(GCProfiler.class);
+        new Runner(opts.build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+package server;
+
+import org.openjdk.jmh.annotations.*;
+import protocol.MessageChannel;
+import protocol.Msg;
+import schema.Question;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Partida real por loopback contra um servidor no mesmo processo (handleClient ou NioEngine)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GameRoundTripBench {
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"thread", "nio"})
+        public String engine;
+
+        int port;
+        Path data;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            data = BenchData.psvFile(10_000);
+            port = BenchData.freePort();
+            BenchData.startServer(data, ConnectionEngine.parse(engine), port);
+        }
+
+        @TearDown(Level.Trial)
+        public void cleanup() {
+            BenchData.deleteDir(data);
+        }
+    }
+
+    // Um jogador conectado por thread do benchmark
+    @State(Scope.Thread)
+    public static class Player {
+        MessageChannel ch;
+        Question current;
+
+        void connect(Server s) throws IOException {
+            ch = MessageChannel.connect("127.0.0.1", s.port, Msg.Role.PLAYER);
+            ch.read(); // Banner
+            current = expectAsk(ch.read());
+        }
+
+        @Setup(Level.Trial)
+        public void setup(Server s) throws IOException { connect(s); }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException { ch.close(); }
+    }
+
+    // Uma resposta: ANSWER → RESULT + próxima pergunta
+    @Benchmark
+    public Msg answer(Server s, Player p) throws IOException {
+        p.ch.send(new Msg.Answer(p.ch.answerId(p.current), p.current.correct));
+        Msg result = p.ch.read();
+        Msg next = p.ch.read();
+        if (next instanceof Msg.Ask a) {
+            p.current = a.question();
+        } else { // Acabaram as perguntas: nova partida
+            p.ch.close();
+            p.connect(s);
+        }
+        return result;
+    }
+
+    // Sessão curta: conexão + negociação + 1ª pergunta + saída
+    @Benchmark
+    public Msg session(Server s) throws IOException {
+        try (MessageChannel ch = MessageChannel.connect("127.0.0.1", s.port, Msg.Role.PLAYER)) {
+            ch.read(); // Banner
+            expectAsk(ch.read());
+            ch.send(new Msg.Quit());
+            return ch.read(); // BYE
+        }
+    }
+
+    static Question expectAsk(Msg m) throws StreamCorruptedException {
+        if (m instanceof Msg.Ask a) return a.question();
+        throw new StreamCorruptedException("pergunta esperada: " + m);
+    }
+}
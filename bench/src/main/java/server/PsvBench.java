@@ -0,0 +1,67 @@
+package server;
+
+import org.openjdk.jmh.annotations.*;
+import protocol.Msg;
+import protocol.Wire;
+import schema.Question;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Codec PSV, geração de id e codificação binária de um lote de EXPORT
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PsvBench {
+    private Question question;
+    private String line;
+    private Msg.Batch batch;
+    private ByteBuffer frame;
+    private final ByteBuffer scratch = ByteBuffer.allocate(1 << 20);
+
+    @Setup
+    public void setup() {
+        question = BenchData.question(42);
+        line = question.toPSV();
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < ExportStream.BATCH_SIZE; i++) qs.add(BenchData.question(i));
+        batch = new Msg.Batch(qs, false);
+        frame = ByteBuffer.allocate(1 << 20);
+        Wire.encode(batch, frame);
+        frame.flip();
+    }
+
+    @Benchmark
+    public String toPSV() {
+        return question.toPSV();
+    }
+
+    @Benchmark
+    public Question fromPSV() {
+        return Question.fromPSV(line);
+    }
+
+    // Construtor = cálculo do id pelo conteúdo
+    @Benchmark
+    public Question newQuestionWithId() {
+        return new Question(question.topic, question.text, question.options, question.correct);
+    }
+
+    @Benchmark
+    public int encodeBatch() {
+        scratch.clear();
+        Wire.encode(batch, scratch);
+        return scratch.position();
+    }
+
+    @Benchmark
+    public Msg decodeBatch() throws StreamCorruptedException {
+        return Wire.decode(frame.duplicate());
+    }
+}
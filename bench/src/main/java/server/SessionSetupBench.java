@@ -0,0 +1,56 @@
+package server;
+
+import org.openjdk.jmh.annotations.*;
+import schema.Question;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Custo de começar uma partida: vetor compartilhado + sorteio sob demanda (atual) contra a cópia
+// embaralhada do banco inteiro (como era antes), servindo as 10 primeiras perguntas.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionSetupBench {
+    private static final int SERVED = 10;
+
+    @Param({"10", "10000", "1000000"})
+    public int size;
+
+    private QuestionBank bank;
+    private final Random rng = new Random();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bank = new QuestionBank();
+        for (int i = 0; i < size; i++) bank.add(BenchData.question(i));
+        bank.snapshot();
+    }
+
+    @Benchmark
+    public Question lazySession() {
+        GameSession game = new GameSession(bank.snapshot());
+        Question last = null;
+        for (int i = 0; i < SERVED && (last = game.deal()) != null; i++) game.answer(last.id(), last.correct);
+        return last;
+    }
+
+    @Benchmark
+    public Question topicSession() {
+        GameSession game = new GameSession(bank.topicSnapshot(List.of("Tópico 7")));
+        return game.deal();
+    }
+
+    @Benchmark
+    public Question copyAndShuffle() {
+        List<Question> pool = new ArrayList<>(bank.values());
+        Collections.shuffle(pool, rng);
+        return pool.get(Math.min(SERVED, pool.size()) - 1);
+    }
+}
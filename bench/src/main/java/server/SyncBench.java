@@ -0,0 +1,104 @@
+package server;
+
+import org.openjdk.jmh.annotations.*;
+import protocol.MessageChannel;
+import protocol.Msg;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Sincronização contra um servidor com 'size' perguntas: EXPORT em lotes pelo fio e PULL completo
+// (resumos + FETCH + integração + journal) para um servidor vazio ou já sincronizado.
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class SyncBench {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private int port;
+    private Path data;
+    private QAQuizServer synced; // Já tem tudo: PULL só compara resumos
+    private Path syncedData;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        data = BenchData.psvFile(size);
+        port = BenchData.freePort();
+        BenchData.startServer(data, ConnectionEngine.NIO, port);
+        syncedData = BenchData.copyOf(data); // Mesmo arquivo: sem as seeds de um servidor novo, resumos iguais
+        synced = new QAQuizServer("127.0.0.1", 0, syncedData.toString(), ConnectionEngine.THREAD);
+        int transferred = synced.pull("127.0.0.1", port, true); // Falha sai como exceção, não como 0
+        if (transferred != 0) throw new IllegalStateException("servidores deveriam estar iguais: PULL trouxe " + transferred);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        synced.close();
+        BenchData.deleteDir(syncedData);
+        BenchData.deleteDir(data);
+    }
+
+    // Servidor novo (só seeds) que vai receber o PULL
+    @State(Scope.Thread)
+    public static class Target {
+        QAQuizServer server;
+        Path data;
+
+        @Setup(Level.Invocation)
+        public void create() throws IOException {
+            data = BenchData.emptyDataFile();
+            server = new QAQuizServer("127.0.0.1", 0, data.toString(), ConnectionEngine.THREAD);
+        }
+
+        @TearDown(Level.Invocation)
+        public void cleanup() {
+            server.close(); // Solta journal, replicação e hook: o banco desta invocação pode ser coletado
+            BenchData.deleteDir(data);
+        }
+    }
+
+    // EXPORT completo no protocolo binário, com os créditos do receptor
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 3)
+    public int export() throws IOException {
+        int received = 0;
+        try (MessageChannel ch = MessageChannel.connect("127.0.0.1", port, Msg.Role.PEER)) {
+            ch.read(); // Banner
+            ch.send(new Msg.Export(null));
+            ch.send(new Msg.Credit(ExportStream.WINDOW));
+            while (true) {
+                if (!(ch.read() instanceof Msg.Batch b)) throw new StreamCorruptedException("lote esperado");
+                received += b.questions().size();
+                if (b.last()) break;
+                ch.send(new Msg.Credit(1));
+            }
+            ch.send(new Msg.Quit());
+        }
+        return received;
+    }
+
+    // PULL do banco inteiro para um servidor vazio
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int pullFull(Target t) {
+        return t.server.pullFromPeer("127.0.0.1", port);
+    }
+
+    // PULL entre servidores iguais: duas idas e voltas de resumos, nada transferido
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 3)
+    public int pullInSync() throws IOException {
+        int transferred = synced.pull("127.0.0.1", port, true);
+        if (transferred != 0) throw new IllegalStateException("PULL entre iguais trouxe " + transferred + " perguntas");
+        return transferred;
+    }
+}
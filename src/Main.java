@@ -1,14 +1,24 @@
 import server.QAQuizServer;     // Importa a classe do servidor do quiz
 import client.QAQuizClient;     // Importa a classe do cliente do quiz
+import client.LoadGenerator;    // Jogadores simulados (teste de carga)
+import client.ImportClient;     // Envio de um arquivo de perguntas (IMPORT)
+import server.ConnectionEngine; // Modos de atendimento das conexões
+
+import java.util.Arrays;
+import java.util.List;
 
 public class Main {
     public static void main(String[] args) throws Exception {
         // Uso (ajuda no terminal):
-        //   Servidor: java Main server 0.0.0.0 6000 data.psv
-        //   Cliente : java Main client 127.0.0.1 6000
+        //   Servidor: java Main server 0.0.0.0 6000 data.psv [thread|virtual|nio]
+        //   Cliente : java Main client 127.0.0.1 6000 [Redes,Java] [pipeline=4]
+        //   Carga   : java Main loadgen 127.0.0.1 6000 [players=100 duration=30 think=100 ...]
+        //   Import  : java Main import 127.0.0.1 6000 perguntas.psv
 
         if (args.length < 1) {  // Se não passou nenhum argumento, mostra o uso e sai
-            System.out.println("usage:\n  server <host> <port> <datafile>\n  client <host> <port>");
+            System.out.println("usage:\n  server <host> <port> <datafile> [thread|virtual|nio]\n  client <host> <port> [topic1,topic2,...] [pipeline=N]\n" +
+                    "  loadgen <host> <port> [players=N duration=s think=ms correct=0..1 answers=N export=0..1 ramp=ms topics=a,b]\n" +
+                    "  import <host> <port> <file.psv>");
             return;
         }
 
@@ -19,17 +29,37 @@ public class Main {
                 String host = (args.length > 1) ? args[1] : "0.0.0.0";           // Endereço para escutar
                 int port = (args.length > 2) ? Integer.parseInt(args[2]) : 6000; // Porta do servidor
                 String data = (args.length > 3) ? args[3] : "questions.psv";     // Arquivo de dados (PSV)
+                ConnectionEngine engine = (args.length > 4)                       // Modo de atendimento
+                        ? ConnectionEngine.parse(args[4]) : ConnectionEngine.VIRTUAL;
 
                 // Cria e inicia o servidor (loop infinito)
-                new QAQuizServer(host, port, data).serveForever();
+                new QAQuizServer(host, port, data, engine).serveForever();
             }
             case "client" -> {
                 // Lê parâmetros com valores padrão se não informados
                 String host = (args.length > 1) ? args[1] : "127.0.0.1";          // Endereço do servidor
                 int port = (args.length > 2) ? Integer.parseInt(args[2]) : 6000; // Porta do servidor
+                List<String> topics = List.of();                                  // Tópicos (separados por vírgula)
+                int pipeline = 0;                                                 // Perguntas adiantadas (0 = uma por vez)
+                for (int i = 3; i < args.length; i++) {
+                    if (args[i].startsWith("pipeline=")) pipeline = Integer.parseInt(args[i].substring(9));
+                    else topics = Arrays.stream(args[i].split(",")).map(String::trim).filter(t -> !t.isEmpty()).toList();
+                }
 
                 // Executa o cliente e conecta ao servidor
-                QAQuizClient.run(host, port);
+                QAQuizClient.run(host, port, topics, pipeline);
+            }
+            case "loadgen" -> {
+                String host = (args.length > 1) ? args[1] : "127.0.0.1";          // Endereço do servidor
+                int port = (args.length > 2) ? Integer.parseInt(args[2]) : 6000; // Porta do servidor
+
+                // Roda os jogadores simulados pelo tempo pedido e imprime o relatório
+                LoadGenerator.run(host, port, LoadGenerator.Config.parse(args, 3));
+            }
+            case "import" -> {
+                if (args.length < 4) { System.out.println("usage: import <host> <port> <file.psv>"); return; }
+                // Envia o arquivo ao servidor, que valida e integra as perguntas em lotes
+                ImportClient.run(args[1], Integer.parseInt(args[2]), args[3]);
             }
             default -> System.out.println("unknown mode: " + args[0]); // Modo desconhecido
         }
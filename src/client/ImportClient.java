@@ -0,0 +1,79 @@
+package client;
+
+import protocol.*; // Mensagens e negociação do protocolo
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Envia um arquivo PSV ao servidor (IMPORT): pedaços de linhas inteiras, no ritmo dos créditos do
+// servidor, que valida, deduplica e grava cada pedaço assim que chega. O arquivo é lido aos poucos:
+// a memória não cresce com o tamanho dele.
+public class ImportClient {
+    static final int CHUNK_BYTES = 256 * 1024; // Tamanho alvo de um pedaço (linhas inteiras)
+    static final int CONNECT_TIMEOUT_MS = 5_000;
+    static final int READ_TIMEOUT_MS = Integer.getInteger("qaquiz.import.readTimeout", 60_000); // Por leitura
+
+    public static void run(String host, int port, String file) {
+        long t0 = System.nanoTime();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(file)), CHUNK_BYTES);
+             MessageChannel ch = MessageChannel.connect(host, port, new Msg.Hello(Msg.Role.PEER),
+                     CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS)) {
+            if (ch.legacy()) {
+                System.out.println("[erro] o servidor não aceita IMPORT (só fala o protocolo antigo)");
+                return;
+            }
+            Msg banner = ch.read();
+            System.out.println("[conectado] " + (banner instanceof Msg.Banner b ? b.text() : banner));
+
+            int credit = 1; // Só o primeiro pedaço vai sem esperar: o servidor aceita (janela) ou recusa
+            long bytes = 0;
+            byte[] buf = new byte[CHUNK_BYTES];
+            int filled = 0;
+            boolean eof = false;
+            while (!eof) {
+                // Completa o buffer e corta no último '\n' (o resto vai no começo do próximo pedaço)
+                int n;
+                while (filled < buf.length && (n = in.read(buf, filled, buf.length - filled)) > 0) filled += n;
+                eof = filled < buf.length;
+                int cut = eof ? filled : lastNewline(buf, filled) + 1;
+                if (cut == 0 && !eof) { // Linha maior que o buffer: cresce e tenta de novo
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+
+                while (credit == 0) {
+                    Msg m = ch.read();
+                    if (m instanceof Msg.Credit c) credit += c.batches();
+                    else if (m instanceof Msg.ImportResult r) { report(r, bytes, t0); return; } // Recusado no meio
+                }
+                ch.send(new Msg.Import(Arrays.copyOf(buf, cut), eof)); // No fim sempre vai um último, mesmo vazio
+                credit--;
+                bytes += cut;
+                System.arraycopy(buf, cut, buf, 0, filled - cut);
+                filled -= cut;
+            }
+
+            while (true) { // Créditos que sobraram, depois o resumo
+                Msg m = ch.read();
+                if (m instanceof Msg.ImportResult r) { report(r, bytes, t0); return; }
+                if (!(m instanceof Msg.Credit)) throw new StreamCorruptedException("resposta inesperada ao IMPORT: " + m);
+            }
+        } catch (Exception e) {
+            System.out.println("[erro] " + e.getMessage());
+        }
+    }
+
+    private static int lastNewline(byte[] buf, int len) {
+        for (int i = len - 1; i >= 0; i--) if (buf[i] == '\n') return i;
+        return -1;
+    }
+
+    private static void report(Msg.ImportResult r, long bytes, long t0) {
+        double secs = Math.max((System.nanoTime() - t0) / 1e9, 1e-9);
+        System.out.printf(Locale.ROOT, "[import] %d linhas, %d novas, %d repetidas, %d inválidas | %.1f MB em %.2fs (%.0f linhas/s)%n",
+                r.lines(), r.added(), r.lines() - r.added() - r.invalid(), r.invalid(), bytes / 1e6, secs, r.lines() / secs);
+        if (!r.error().isEmpty()) System.out.println("[import] " + r.error());
+    }
+}
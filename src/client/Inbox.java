@@ -0,0 +1,63 @@
+package client;
+
+import protocol.MessageChannel; // Conexão com o servidor
+import protocol.Msg;            // Mensagens do protocolo
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Mensagens recebidas do servidor. No modo pipeline uma thread leitora esvazia o socket por conta
+// própria, então o jogador responde sem esperar os resultados e os lê quando estiverem prontos (poll).
+// No modo clássico lê direto do canal, sem thread extra.
+final class Inbox {
+    private static final Msg CLOSED = new Msg.Quit(); // Marca de fim da leitura (EOF ou erro)
+
+    private final MessageChannel ch;
+    private final BlockingQueue<Msg> queue;      // null no modo clássico
+    private volatile IOException failure;        // Erro da thread leitora, relançado em take()
+
+    Inbox(MessageChannel ch, boolean async) {
+        this.ch = ch;
+        this.queue = async ? new LinkedBlockingQueue<>() : null;
+        if (async) {
+            Thread reader = new Thread(this::readLoop, "qaquiz-inbox");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    // Próxima mensagem, esperando se preciso
+    Msg take() throws IOException {
+        if (queue == null) return ch.read();
+        try {
+            return check(queue.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrompido");
+        }
+    }
+
+    // Próxima mensagem se já chegou (sempre null no modo clássico)
+    Msg poll() throws IOException {
+        return queue == null ? null : check(queue.poll());
+    }
+
+    private Msg check(Msg m) throws IOException {
+        if (m != CLOSED) return m;
+        queue.add(CLOSED); // Próximas chamadas também falham
+        throw failure;
+    }
+
+    private void readLoop() {
+        try {
+            while (true) queue.add(ch.read());
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new EOFException(String.valueOf(e.getMessage()));
+        }
+        queue.add(CLOSED);
+    }
+}
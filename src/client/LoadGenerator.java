@@ -0,0 +1,342 @@
+package client;
+
+import protocol.*;                 // Mensagens e negociação do protocolo
+import schema.Question;            // Modelo da pergunta
+import server.ConnectionEngine;    // Threads virtuais (ou de plataforma em JVMs antigas)
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.SocketTimeoutException;
+import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Gerador de carga sem interface: N jogadores simulados, cada um numa thread (virtual quando a JVM
+// permite), jogam partidas reais contra o servidor. Cada jogador responde após um tempo de "pensar",
+// acerta com a probabilidade configurada, sai depois de algumas respostas e reconecta (churn) e,
+// numa fração das sessões, faz um EXPORT como se fosse um peer. No fim imprime sessões/s, latências
+// (p50/p99/p999) e erros.
+//
+//   java Main loadgen 127.0.0.1 6000 players=500 duration=30 think=200 correct=0.7 answers=10 export=0.01
+public final class LoadGenerator {
+    // Parâmetros (chave=valor na linha de comando)
+    public record Config(int players, int durationSec, int thinkMs, double correctRate, int answersPerSession,
+                         double exportRate, int rampMs, int pipeline, List<String> topics) {
+        static final String USAGE = "players=N duration=s think=ms correct=0..1 answers=N export=0..1 ramp=ms pipeline=N topics=a,b";
+
+        public static Config parse(String[] args, int from) {
+            Map<String, String> kv = new HashMap<>();
+            for (int i = from; i < args.length; i++) {
+                int eq = args[i].indexOf('=');
+                if (eq <= 0) throw new IllegalArgumentException("esperado chave=valor: " + args[i] + " (" + USAGE + ")");
+                kv.put(args[i].substring(0, eq).trim().toLowerCase(Locale.ROOT), args[i].substring(eq + 1).trim());
+            }
+            Config c = new Config(
+                    Integer.parseInt(kv.getOrDefault("players", "100")),
+                    Integer.parseInt(kv.getOrDefault("duration", "30")),
+                    Integer.parseInt(kv.getOrDefault("think", "100")),
+                    Double.parseDouble(kv.getOrDefault("correct", "0.7")),
+                    Integer.parseInt(kv.getOrDefault("answers", "10")),
+                    Double.parseDouble(kv.getOrDefault("export", "0")),
+                    Integer.parseInt(kv.getOrDefault("ramp", "1000")),
+                    Integer.parseInt(kv.getOrDefault("pipeline", "0")),
+                    Arrays.stream(kv.getOrDefault("topics", "").split(","))
+                            .map(String::trim).filter(t -> !t.isEmpty()).toList());
+            kv.keySet().removeAll(List.of("players", "duration", "think", "correct", "answers", "export", "ramp", "pipeline", "topics"));
+            if (!kv.isEmpty()) throw new IllegalArgumentException("opção desconhecida: " + kv.keySet() + " (" + USAGE + ")");
+            if (c.players < 1 || c.durationSec < 1 || c.answersPerSession < 1)
+                throw new IllegalArgumentException("players, duration e answers devem ser >= 1");
+            return c;
+        }
+    }
+
+    static final int CONNECT_TIMEOUT_MS = 5_000;
+    static final int READ_TIMEOUT_MS = Integer.getInteger("qaquiz.loadgen.readTimeout", 10_000); // Resposta travada
+
+    // Latências (µs) de um jogador: só a própria thread escreve; publicadas quando o jogador termina
+    private static final class Samples {
+        long[] v = new long[256];
+        int n;
+
+        void add(long micros) {
+            if (n == v.length) v = Arrays.copyOf(v, n * 2);
+            v[n++] = micros;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final Config cfg;
+    private volatile boolean running = true;
+
+    // Contadores globais
+    private final LongAdder sessions = new LongAdder();      // Partidas concluídas (BYE ou END)
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder exports = new LongAdder();       // EXPORTs completos
+    private final LongAdder exportQuestions = new LongAdder();
+    private final LongAdder connectErrors = new LongAdder(); // Falha ao conectar/negociar
+    private final LongAdder ioErrors = new LongAdder();      // Conexão caiu no meio da sessão
+    private final LongAdder timeouts = new LongAdder();      // Servidor não respondeu em READ_TIMEOUT_MS
+    private final LongAdder protocolErrors = new LongAdder(); // Mensagem inesperada
+    private final LongAdder scoreErrors = new LongAdder();   // Pontuação do servidor diferente da esperada
+
+    // Só jogadores que terminaram entram aqui (a lista sincronizada publica as amostras completas)
+    private final List<Samples> answerLatency = Collections.synchronizedList(new ArrayList<>());
+    private final List<Samples> setupLatency = Collections.synchronizedList(new ArrayList<>());
+    private final List<Samples> exportLatency = Collections.synchronizedList(new ArrayList<>());
+
+    public LoadGenerator(String host, int port, Config cfg) {
+        this.host = host;
+        this.port = port;
+        this.cfg = cfg;
+    }
+
+    public static void run(String host, int port, Config cfg) throws InterruptedException {
+        new LoadGenerator(host, port, cfg).run();
+    }
+
+    // ---------- Execução ----------
+    public void run() throws InterruptedException {
+        System.out.printf("[LOADGEN] %d jogadores contra %s:%d por %ds (think=%dms, acerto=%.0f%%, %d respostas/sessão, export=%.1f%%, pipeline=%d)%n",
+                cfg.players, host, port, cfg.durationSec, cfg.thinkMs, cfg.correctRate * 100,
+                cfg.answersPerSession, cfg.exportRate * 100, cfg.pipeline);
+        ThreadFactory threads = ConnectionEngine.VIRTUAL.sessionThreads();
+        List<Thread> players = new ArrayList<>(cfg.players);
+        long start = System.nanoTime();
+        for (int i = 0; i < cfg.players; i++) {
+            long delayNanos = TimeUnit.MILLISECONDS.toNanos(cfg.rampMs) * i / cfg.players; // Entrada gradual
+            Thread t = threads.newThread(() -> player(start + delayNanos));
+            t.setDaemon(true);
+            t.start();
+            players.add(t);
+        }
+
+        long end = start + TimeUnit.SECONDS.toNanos(cfg.durationSec);
+        long lastSessions = 0, lastAnswers = 0, lastAt = start;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(5_000, Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            long now = System.nanoTime(), s = sessions.sum(), a = answers.sum();
+            double secs = (now - lastAt) / 1e9;
+            System.out.printf(Locale.ROOT, "[LOADGEN] t=%ds sessões/s=%.1f respostas/s=%.1f erros=%d%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start), (s - lastSessions) / secs, (a - lastAnswers) / secs, errors());
+            lastSessions = s; lastAnswers = a; lastAt = now;
+        }
+        running = false;
+        // Cada jogador fecha a sessão atual; um prazo só para todos (jogadores travados não somam esperas)
+        long joinBy = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(2_000, 2L * cfg.thinkMs));
+        int unfinished = 0;
+        for (Thread t : players) {
+            long left = TimeUnit.NANOSECONDS.toMillis(joinBy - System.nanoTime());
+            if (left > 0) t.join(left);
+            if (t.isAlive()) unfinished++;
+        }
+        report((System.nanoTime() - start) / 1e9, unfinished);
+    }
+
+    // Um jogador simulado: sessões seguidas até o fim do teste
+    private void player(long startAt) {
+        LockSupport.parkNanos(startAt - System.nanoTime());
+        Samples answerLat = new Samples(), setupLat = new Samples(), exportLat = new Samples();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while (running) {
+            try {
+                if (cfg.exportRate > 0 && rnd.nextDouble() < cfg.exportRate) exportSession(exportLat);
+                else playSession(rnd, answerLat, setupLat);
+            } catch (StreamCorruptedException e) {
+                protocolErrors.increment();
+                pause(100);
+            } catch (SocketTimeoutException e) {
+                timeouts.increment();
+            } catch (IOException e) {
+                ioErrors.increment();
+                pause(100); // Servidor fora ou recusando: não martela
+            }
+        }
+        answerLatency.add(answerLat);
+        setupLatency.add(setupLat);
+        exportLatency.add(exportLat);
+    }
+
+    // Partida: conecta, responde até 'answers' perguntas e sai (ou até acabarem as perguntas).
+    // A latência medida é a espera do jogador pela próxima pergunta depois de responder: no modo clássico
+    // é a ida e volta RESULT + pergunta; no pipeline a pergunta normalmente já chegou.
+    private void playSession(ThreadLocalRandom rnd, Samples answerLat, Samples setupLat) throws IOException {
+        long t0 = System.nanoTime();
+        MessageChannel ch;
+        try {
+            ch = MessageChannel.connect(host, port, new Msg.Hello(Msg.Role.PLAYER, cfg.topics, cfg.pipeline),
+                    CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+        } catch (IOException e) {
+            connectErrors.increment();
+            pause(100);
+            return;
+        }
+        try (ch) {
+            Inbox inbox = new Inbox(ch, cfg.pipeline > 0);
+            expect(inbox.take(), Msg.Banner.class);
+            Round round = new Round();
+            round.await(inbox);
+            setupLat.add((System.nanoTime() - t0) / 1_000);
+            for (int n = 0; n < cfg.answersPerSession && running && !round.ended; n++) {
+                Question q = round.ready.poll();
+                pause(think(rnd));
+                boolean right = rnd.nextDouble() < cfg.correctRate;
+                int choice = right ? q.correct : (q.correct + 1) % Math.max(2, q.options.size());
+                ch.send(new Msg.Answer(ch.answerId(q), choice));
+                round.expected.add(right);
+                answers.increment();
+                if (right) correct.increment();
+                long sent = System.nanoTime();
+                round.drain(inbox);
+                if (round.ready.isEmpty()) round.await(inbox); // Parado esperando a próxima pergunta
+                answerLat.add((System.nanoTime() - sent) / 1_000);
+            }
+            if (!round.ended) {
+                ch.send(new Msg.Quit());
+                while (!round.ended) round.on(inbox.take()); // Resultados que faltam + BYE
+            }
+            if (!round.expected.isEmpty()) scoreErrors.increment(); // Respostas sem resultado
+            sessions.increment();
+        }
+    }
+
+    // Estado de uma partida do lado do jogador: perguntas prontas e resultados esperados, em ordem
+    private final class Round {
+        final ArrayDeque<Question> ready = new ArrayDeque<>();
+        final ArrayDeque<Boolean> expected = new ArrayDeque<>(); // Acerto de cada resposta ainda sem RESULT
+        int score;
+        boolean ended; // END ou BYE
+
+        // Espera até ter uma pergunta pronta ou o jogo acabar
+        void await(Inbox inbox) throws IOException {
+            while (ready.isEmpty() && !ended) on(inbox.take());
+        }
+
+        // Consome o que já chegou (modo pipeline)
+        void drain(Inbox inbox) throws IOException {
+            Msg m;
+            while ((m = inbox.poll()) != null) on(m);
+        }
+
+        void on(Msg m) throws StreamCorruptedException {
+            if (m instanceof Msg.Ask a) {
+                if (!ended) ready.add(a.question());
+            } else if (m instanceof Msg.Prefetch p) {
+                if (!ended) ready.addAll(p.questions());
+            } else if (m instanceof Msg.Result r) {
+                Boolean right = expected.poll();
+                if (right == null || r.correct() != right) scoreErrors.increment();
+                if (Boolean.TRUE.equals(right)) score++;
+                checkScore(r.score(), score);
+            } else if (m instanceof Msg.End e) {
+                checkScore(e.score(), score); ended = true;
+            } else if (m instanceof Msg.Bye b) {
+                checkScore(b.score(), score); ended = true;
+            } else {
+                throw new StreamCorruptedException("mensagem inesperada: " + m);
+            }
+        }
+    }
+
+    // EXPORT completo como um peer, com os créditos do receptor
+    private void exportSession(Samples exportLat) throws IOException {
+        long t0 = System.nanoTime();
+        MessageChannel ch;
+        try {
+            ch = MessageChannel.connect(host, port, new Msg.Hello(Msg.Role.PEER), CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+        } catch (IOException e) {
+            connectErrors.increment();
+            pause(100);
+            return;
+        }
+        try (ch) {
+            expect(ch.read(), Msg.Banner.class);
+            ch.send(new Msg.Export(null));
+            if (ch.legacy()) { // Servidor antigo: resposta única, sem lotes
+                exportQuestions.add(expect(ch.read(), Msg.Export.class).questions().size());
+            } else {
+                ch.send(new Msg.Credit(4));
+                Msg.Batch b;
+                do {
+                    b = expect(ch.read(), Msg.Batch.class);
+                    exportQuestions.add(b.questions().size());
+                    if (!b.last()) ch.send(new Msg.Credit(1));
+                } while (!b.last());
+                ch.send(new Msg.Quit());
+            }
+            exportLat.add((System.nanoTime() - t0) / 1_000);
+            exports.increment();
+        }
+    }
+
+    private void checkScore(int got, int expected) {
+        if (got != expected) scoreErrors.increment();
+    }
+
+    private static <T extends Msg> T expect(Msg m, Class<T> type) throws StreamCorruptedException {
+        if (type.isInstance(m)) return type.cast(m);
+        throw new StreamCorruptedException("esperado " + type.getSimpleName() + ", veio " + m);
+    }
+
+    // Tempo de "pensar" uniforme em [0, 2*think] (média = think)
+    private long think(ThreadLocalRandom rnd) {
+        return cfg.thinkMs <= 0 ? 0 : rnd.nextLong(2L * cfg.thinkMs + 1);
+    }
+
+    private static void pause(long millis) {
+        if (millis > 0) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private long errors() {
+        return connectErrors.sum() + ioErrors.sum() + timeouts.sum() + protocolErrors.sum() + scoreErrors.sum();
+    }
+
+    // ---------- Relatório ----------
+    // unfinished = jogadores ainda presos no fim do prazo (amostras deles ficam de fora)
+    private void report(double secs, int unfinished) {
+        long s = sessions.sum(), a = answers.sum();
+        System.out.printf(Locale.ROOT, String.join("%n",
+                        "",
+                        "[LOADGEN] Resultado em %.1fs",
+                        "  Sessões:   %d (%.1f/s)",
+                        "  Respostas: %d (%.1f/s, %d corretas)",
+                        "  Espera pela próxima pergunta (após responder): %s",
+                        "  Setup (conexão → 1ª pergunta):               %s",
+                        "  EXPORT:    %d (%d perguntas) duração: %s",
+                        "  Erros:     conexão=%d, E/S=%d, timeout=%d, protocolo=%d, pontuação=%d",
+                        ""),
+                secs, s, s / secs, a, a / secs, correct.sum(),
+                summary(answerLatency), summary(setupLatency),
+                exports.sum(), exportQuestions.sum(), summary(exportLatency),
+                connectErrors.sum(), ioErrors.sum(), timeouts.sum(), protocolErrors.sum(), scoreErrors.sum());
+        if (unfinished > 0) System.out.printf("  Jogadores que não encerraram a tempo: %d (latências deles fora do relatório)%n", unfinished);
+    }
+
+    // Percentis exatos: junta as amostras de todos os jogadores e ordena
+    private static String summary(List<Samples> all) {
+        long[] v;
+        synchronized (all) {
+            int n = 0;
+            for (Samples s : all) n += s.n;
+            v = new long[n];
+            int at = 0;
+            for (Samples s : all) { System.arraycopy(s.v, 0, v, at, s.n); at += s.n; }
+        }
+        if (v.length == 0) return "n=0";
+        Arrays.sort(v);
+        return String.format("n=%d p50=%s p99=%s p999=%s máx=%s", v.length,
+                fmt(pct(v, 0.50)), fmt(pct(v, 0.99)), fmt(pct(v, 0.999)), fmt(v[v.length - 1]));
+    }
+
+    private static long pct(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String fmt(long micros) {
+        return micros < 1_000 ? micros + "µs" : String.format(Locale.ROOT, "%.1fms", micros / 1_000.0);
+    }
+}
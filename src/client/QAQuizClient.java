@@ -1,62 +1,79 @@
 package client;
 
-import schema.Question; // Importa o modelo serializável da pergunta
+import protocol.*;      // Mensagens e negociação do protocolo
+import schema.Question; // Importa o modelo da pergunta
 
-import java.io.*;       // Streams de E/S (Object streams para trafegar objetos)
-import java.net.*;      // Socket
+import java.util.ArrayDeque; // Perguntas recebidas e ainda não respondidas
+import java.util.List;    // Tópicos escolhidos
 import java.util.Scanner; // Leitura do teclado
 
 public class QAQuizClient {
     // Método estático para executar o cliente e conectar em (host, port)
     public static void run(String host, int port) {
-        // try-with-resources garante fechar o socket ao final
-        try (Socket s = new Socket(host, port)) {
-            // Cria streams de objetos (ordem importa: cria OOS, flush, depois OIS)
-            ObjectOutputStream oos = new ObjectOutputStream(s.getOutputStream()); oos.flush();
-            ObjectInputStream  ois = new ObjectInputStream(s.getInputStream());
+        run(host, port, List.of());
+    }
+
+    // Igual, jogando só perguntas dos tópicos informados (vazio = todas)
+    public static void run(String host, int port, List<String> topics) {
+        run(host, port, topics, 0);
+    }
 
+    // pipeline > 0: o servidor adianta até essa quantidade de perguntas e o cliente responde sem esperar
+    // o resultado da anterior (os resultados aparecem assim que chegam). Servidores antigos ignoram o pedido.
+    public static void run(String host, int port, List<String> topics, int pipeline) {
+        // try-with-resources garante fechar a conexão ao final.
+        // connect negocia o protocolo binário e cai para serialização Java com servidores antigos.
+        try (MessageChannel ch = MessageChannel.connect(host, port, new Msg.Hello(Msg.Role.PLAYER, topics, pipeline))) {
+            Inbox inbox = new Inbox(ch, pipeline > 0); // Leitura em segundo plano no modo pipeline
             // Lê o banner inicial enviado pelo servidor (ex.: "BANNER:QAQuizServer")
-            System.out.println("[conectado] " + ois.readObject());
+            Msg banner = inbox.take();
+            System.out.println("[conectado] " + (banner instanceof Msg.Banner b ? b.text() : banner));
 
             Scanner sc = new Scanner(System.in); // Para ler respostas do usuário no console
+            ArrayDeque<Question> ready = new ArrayDeque<>(); // Perguntas recebidas e ainda não mostradas
+            boolean quitting = false;                        // Pediu para sair: só espera o BYE
 
-            // Loop principal do cliente: aguarda objetos vindos do servidor
+            // Loop principal do cliente: mostra a próxima pergunta assim que houver uma
             while (true) {
-                Object obj = ois.readObject(); // Pode ser Question ou String (RESULT|, END|, BYE|)
+                // Sem pergunta pronta, espera a próxima mensagem; com pergunta, só consome o que já chegou
+                Msg msg = ready.isEmpty() ? inbox.take() : inbox.poll();
 
-                if (obj instanceof Question q) {
-                    // Recebeu uma pergunta → imprime tópico, enunciado e opções
-                    System.out.println("\n[" + q.topic + "] " + q.text);
-                    for (int i = 0; i < q.options.size(); i++) {
-                        System.out.println("  " + i + ") " + q.options.get(i));
-                    }
+                if (msg instanceof Msg.Ask ask) {
+                    if (!quitting) ready.add(ask.question());
+                } else if (msg instanceof Msg.Prefetch p) {
+                    if (!quitting) ready.addAll(p.questions()); // Modo pipeline: perguntas adiantadas
+                } else if (msg instanceof Msg.Result r) {
+                    // Feedback da resposta com a pontuação atualizada
+                    System.out.println((r.correct() ? "✅ Correto!" : "❌ Errado.") +
+                            " | Pontuação: " + r.score());
+                } else if (msg instanceof Msg.End e) {
+                    // Fim normal do jogo (acabaram as perguntas)
+                    System.out.println("Fim do jogo. Pontuação: " + e.score()); break;
+                } else if (msg instanceof Msg.Bye b) {
+                    // Saída antecipada (usuário pediu sair)
+                    System.out.println("Encerrado. Pontuação: " + b.score()); break;
+                }
+                if (msg != null || ready.isEmpty()) continue; // Mostra resultados pendentes antes da pergunta
 
-                    // Solicita resposta ao usuário
-                    System.out.print("Resposta (índice) ou 'sair': ");
-                    String ans = sc.nextLine().trim();
+                // Pergunta pronta → imprime tópico, enunciado e opções
+                Question q = ready.poll();
+                System.out.println("\n[" + q.topic + "] " + q.text);
+                for (int i = 0; i < q.options.size(); i++) {
+                    System.out.println("  " + i + ") " + q.options.get(i));
+                }
 
-                    // Se digitou "sair", manda comando SAIR e termina
-                    if (ans.equalsIgnoreCase("sair")) {
-                        oos.writeObject("SAIR"); oos.flush(); break;
-                    } else {
-                        // Caso contrário, envia protocolo "ANSWER:<id>:<indice>"
-                        oos.writeObject("ANSWER:" + q.id + ":" + ans); oos.flush();
-                    }
+                // Solicita resposta ao usuário
+                System.out.print("Resposta (índice) ou 'sair': ");
+                String ans = sc.nextLine().trim();
 
-                } else if (obj instanceof String msg) {
-                    // Mensagens de texto do servidor: RESULT|..., END|..., BYE|...
-                    if (msg.startsWith("RESULT|")) {
-                        String[] p = msg.split("\\|");
-                        // p[1] = "true"/"false"; p[2] = score atualizado
-                        System.out.println((p[1].equals("true") ? "✅ Correto!" : "❌ Errado.") +
-                                " | Pontuação: " + p[2]);
-                    } else if (msg.startsWith("END|")) {
-                        // Fim normal do jogo (acabaram as perguntas)
-                        System.out.println("Fim do jogo. Pontuação: " + msg.substring(4)); break;
-                    } else if (msg.startsWith("BYE|")) {
-                        // Saída antecipada (usuário pediu sair)
-                        System.out.println("Encerrado. Pontuação: " + msg.substring(4)); break;
-                    }
+                // Se digitou "sair", manda pedido de saída e espera o BYE (com os resultados que faltam)
+                if (ans.equalsIgnoreCase("sair")) {
+                    ch.send(new Msg.Quit());
+                    ready.clear();
+                    quitting = true;
+                } else {
+                    // Caso contrário, envia a resposta (texto não numérico conta como erro)
+                    ch.send(new Msg.Answer(ch.answerId(q), parseChoice(ans)));
                 }
             }
         } catch (Exception e) {
@@ -64,4 +81,13 @@ public class QAQuizClient {
             System.out.println("[erro] " + e.getMessage());
         }
     }
+
+    // Índice digitado pelo usuário; -1 (nenhuma alternativa) se não for número
+    private static int parseChoice(String ans) {
+        try {
+            return Integer.parseInt(ans);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
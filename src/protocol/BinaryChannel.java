@@ -0,0 +1,78 @@
+package protocol;
+
+import schema.Question; // Modelo de pergunta
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Canal bloqueante no protocolo binário (frames de Wire).
+final class BinaryChannel implements MessageChannel {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final FrameBuffer outBuf = new FrameBuffer(512); // Reutilizado entre envios
+    private byte[] frame = new byte[512];                    // Reutilizado entre leituras
+    private long sent, received;                             // Bytes de frames trafegados
+    private int maxFrame;                                    // Maior frame aceito na leitura
+
+    BinaryChannel(Socket socket, int maxFrame) throws IOException {
+        this.socket = socket;
+        this.maxFrame = maxFrame;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = socket.getOutputStream();
+    }
+
+    @Override
+    public Msg read() throws IOException {
+        int len = in.readInt();
+        if (len < 1 || len > maxFrame) throw new StreamCorruptedException("bad frame length " + len);
+        ByteBuffer.wrap(frame).putInt(len);
+        // O buffer cresce conforme os bytes chegam, não pelo tamanho anunciado no cabeçalho
+        for (int got = 0; got < len; ) {
+            if (frame.length == 4 + got) frame = Arrays.copyOf(frame, (int) Math.min(4L + len, frame.length * 2L));
+            int n = in.read(frame, 4 + got, Math.min(len - got, frame.length - 4 - got));
+            if (n < 0) throw new EOFException();
+            got += n;
+        }
+        received += len + 4;
+        Msg m = Wire.decode(ByteBuffer.wrap(frame, 0, len + 4), maxFrame);
+        if (frame.length > Wire.MAX_CONTROL_FRAME) frame = new byte[512]; // Não segura o buffer de um frame grande
+        return m;
+    }
+
+    @Override
+    public void maxFrame(int bytes) { maxFrame = bytes; }
+
+    @Override
+    public void send(Msg m) throws IOException {
+        write(m);
+        flush();
+    }
+
+    @Override
+    public void write(Msg m) {
+        outBuf.put(m);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (outBuf.isEmpty()) return;
+        sent += outBuf.size();
+        outBuf.drainTo(out);
+        outBuf.shrink(64 * 1024); // Não segura o buffer grande de um EXPORT
+    }
+
+    @Override
+    public String answerId(Question q) { return q.id(); }
+
+    @Override
+    public Socket socket() { return socket; }
+
+    @Override
+    public long bytesSent() { return sent; }
+
+    @Override
+    public long bytesReceived() { return received; }
+}
@@ -0,0 +1,76 @@
+package protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Buffer de saída que cresce sob demanda. Recebe frames binários (put) ou bytes de um
+// ObjectOutputStream (write) e é drenado direto para um canal ou stream, sem cópias intermediárias.
+public final class FrameBuffer extends OutputStream {
+    private ByteBuffer buf; // Sempre em modo escrita: [0, position) são bytes pendentes
+
+    public FrameBuffer(int initialCapacity) {
+        this.buf = ByteBuffer.allocate(initialCapacity);
+    }
+
+    // Codifica uma mensagem no fim do buffer
+    public void put(Msg m) {
+        int start = buf.position();
+        while (true) {
+            try {
+                Wire.encode(m, buf);
+                return;
+            } catch (BufferOverflowException e) {
+                buf.position(start); // Descarta o frame parcial e tenta de novo com mais espaço
+                grow(buf.capacity() * 2);
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        if (!buf.hasRemaining()) grow(buf.capacity() * 2);
+        buf.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (buf.remaining() < len) grow(Math.max(buf.capacity() * 2, buf.position() + len));
+        buf.put(b, off, len);
+    }
+
+    public int size() { return buf.position(); }
+
+    public boolean isEmpty() { return buf.position() == 0; }
+
+    // Escreve o que o canal aceitar agora; retorna quantos bytes continuam pendentes
+    public int drainTo(WritableByteChannel ch) throws IOException {
+        buf.flip();
+        try {
+            ch.write(buf);
+        } finally {
+            buf.compact();
+        }
+        return buf.position();
+    }
+
+    // Escreve tudo num stream bloqueante
+    public void drainTo(OutputStream out) throws IOException {
+        out.write(buf.array(), buf.arrayOffset(), buf.position());
+        buf.clear();
+    }
+
+    // Libera memória de buffers que cresceram (ex.: depois de um EXPORT), se estiver vazio
+    public void shrink(int maxIdleCapacity) {
+        if (buf.position() == 0 && buf.capacity() > maxIdleCapacity) buf = ByteBuffer.allocate(maxIdleCapacity);
+    }
+
+    private void grow(int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buf.flip();
+        bigger.put(buf);
+        buf = bigger;
+    }
+}
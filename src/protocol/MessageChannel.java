@@ -0,0 +1,124 @@
+package protocol;
+
+import schema.Question; // Modelo de pergunta
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+// Conexão bloqueante que troca Msg, com o formato no fio negociado ao conectar:
+// o cliente abre com o preâmbulo binário; se o servidor responder com um stream de
+// serialização Java (servidor antigo), reconecta usando o protocolo serializado.
+public interface MessageChannel extends Closeable {
+    // Próxima mensagem. Retorna null para objetos que o protocolo não reconhece.
+    Msg read() throws IOException;
+
+    // Envia já (write + flush)
+    void send(Msg m) throws IOException;
+
+    // Enfileira sem enviar: o que foi escrito sai junto no próximo flush, numa escrita só
+    default void write(Msg m) throws IOException { send(m); }
+
+    default void flush() throws IOException {}
+
+    Socket socket();
+
+    // Bytes de mensagens trafegados por este canal (para medir a sincronização)
+    long bytesSent();
+
+    long bytesReceived();
+
+    @Override
+    default void close() throws IOException {
+        socket().close();
+    }
+
+    // Protocolo antigo (serialização Java): não tem handshake de papel
+    default boolean legacy() { return false; }
+
+    // Maior frame aceito a partir de agora. O servidor começa com Wire.MAX_CONTROL_FRAME e só libera
+    // Wire.MAX_FRAME depois que a conexão se declara peer.
+    default void maxFrame(int bytes) {}
+
+    // Id com que o outro lado conhece a pergunta (ex.: numa resposta): 64 bits no protocolo binário,
+    // o id antigo de 32 bits com servidores que só falam serialização Java
+    default String answerId(Question q) { return q.legacyId(); }
+
+    // ---------- Lado cliente ----------
+    // O preâmbulo e o HELLO com o papel vão no mesmo pacote: o servidor decide na hora,
+    // sem esperar nenhuma janela de detecção.
+    static MessageChannel connect(String host, int port, Msg.Role role) throws IOException {
+        return connect(host, port, new Msg.Hello(role));
+    }
+
+    // Com o HELLO completo (ex.: jogador escolhendo tópicos). Servidores antigos ignoram os tópicos.
+    static MessageChannel connect(String host, int port, Msg.Hello hello) throws IOException {
+        return connect(host, port, hello, 0, 0);
+    }
+
+    // Com prazos em ms (0 = sem prazo): para abrir a conexão e para cada leitura depois dela.
+    // Estourar o prazo de leitura gera SocketTimeoutException (ex.: peer travado no meio de um PULL).
+    static MessageChannel connect(String host, int port, Msg.Hello hello, int connectTimeoutMs, int readTimeoutMs)
+            throws IOException {
+        Socket s = open(host, port, connectTimeoutMs, readTimeoutMs);
+        try {
+            FrameBuffer first = new FrameBuffer(64);
+            first.write(Wire.preamble(Wire.VERSION));
+            first.put(hello);
+            OutputStream out = s.getOutputStream();
+            first.drainTo(out); out.flush();
+            byte[] reply = s.getInputStream().readNBytes(Wire.PREAMBLE_SIZE);
+            int version = Wire.preambleVersion(reply);
+            if (version == Wire.VERSION) return new BinaryChannel(s, Wire.MAX_FRAME); // Lotes de EXPORT/FETCH
+            if (version > 0) throw new StreamCorruptedException("versão do protocolo não suportada: " + version);
+            s.close();
+            if (ObjectChannel.isStreamHeader(reply)) {
+                // Servidor só fala serialização Java: nova conexão no protocolo antigo
+                Socket legacy = open(host, port, connectTimeoutMs, readTimeoutMs);
+                try {
+                    return ObjectChannel.client(legacy);
+                } catch (IOException e) {
+                    legacy.close();
+                    throw e;
+                }
+            }
+            throw new StreamCorruptedException("unexpected handshake " + Arrays.toString(reply));
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    private static Socket open(String host, int port, int connectTimeoutMs, int readTimeoutMs) throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            s.setSoTimeout(readTimeoutMs);
+            s.setTcpNoDelay(true); // Mensagens pequenas de ida e volta: sem esperar o ACK (Nagle)
+            return s;
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    // Conecta direto no protocolo serializado (servidores antigos ou para comparação)
+    static MessageChannel connectLegacy(String host, int port) throws IOException {
+        return ObjectChannel.client(new Socket(host, port));
+    }
+
+    // ---------- Lado servidor ----------
+    // Lê os primeiros bytes do cliente e escolhe o protocolo (clientes antigos abrem com o cabeçalho da serialização)
+    static MessageChannel accept(Socket s) throws IOException {
+        s.setTcpNoDelay(true); // Cada resposta já sai inteira num flush só
+        byte[] first = s.getInputStream().readNBytes(Wire.PREAMBLE_SIZE);
+        if (Wire.preambleVersion(first) > 0) {
+            OutputStream out = s.getOutputStream();
+            out.write(Wire.preamble(Wire.VERSION)); out.flush(); // A versão que falamos (o cliente confere)
+            return new BinaryChannel(s, Wire.MAX_CONTROL_FRAME);
+        }
+        if (ObjectChannel.isStreamHeader(first)) return ObjectChannel.server(s, first);
+        throw new StreamCorruptedException("unknown protocol " + Arrays.toString(first));
+    }
+}
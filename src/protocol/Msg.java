@@ -0,0 +1,43 @@
+package protocol;
+
+import schema.Question; // Modelo de pergunta
+
+import java.util.List;
+
+// Mensagens trocadas entre cliente, servidor e peers, independentes do formato no fio
+// (frames binários em Wire ou objetos serializados em ObjectChannel).
+public sealed interface Msg {
+    // Papel declarado pelo cliente ao conectar (protocolo binário)
+    enum Role { PLAYER, PEER }
+
+    record Hello(Role role, List<String> topics, int pipeline) implements Msg { // Cliente/peer → servidor: primeira mensagem
+        public Hello(Role role) { this(role, List.of(), 0); }                    // Sem tópicos = banco inteiro
+        public Hello(Role role, List<String> topics) { this(role, topics, 0); }  // pipeline 0 = uma pergunta por vez
+    }
+    record Banner(String text) implements Msg {}                      // Servidor → todos: identificação
+    record Ask(Question question) implements Msg {}                   // Servidor → jogador: próxima pergunta
+    record Prefetch(List<Question> questions) implements Msg {}       // Servidor → jogador (pipeline): próximas perguntas, em ordem
+    record Answer(String questionId, int choice) implements Msg {}    // Jogador → servidor: alternativa escolhida
+    record Result(boolean correct, int score) implements Msg {}       // Servidor → jogador: feedback da resposta
+    record End(int score) implements Msg {}                           // Servidor → jogador: acabaram as perguntas
+    record Quit() implements Msg {}                                   // Jogador → servidor: pedido de saída
+    record Bye(int score) implements Msg {}                           // Servidor → jogador: saída confirmada
+    record Export(List<Question> questions) implements Msg {          // Peer → servidor (null = pedido) e resposta
+        public boolean isRequest() { return questions == null; }
+    }
+
+    // Sincronização por resumo (anti-entropia): só as perguntas dos baldes que diferem são transferidas
+    record DigestRequest(int[] groups) implements Msg {}              // Peer → servidor: null = resumos dos grupos
+    record DigestReply(long[] digests) implements Msg {}              // Servidor → peer: resumos pedidos, em ordem
+    record Fetch(int[] leaves, long[] haveKeys) implements Msg {}     // Peer → servidor: "tenho estas keys nestas folhas"
+
+    // Resposta de EXPORT/FETCH em lotes, com controle de fluxo por créditos dados pelo receptor
+    record Batch(List<Question> questions, boolean last) implements Msg {} // Servidor → peer: um lote
+    record Credit(int batches) implements Msg {}                           // Peer → servidor: pode mandar mais N lotes
+
+    // Ingestão em massa (IMPORT): o cliente envia um arquivo PSV em pedaços de linhas inteiras (UTF-8). Depois
+    // do primeiro, espera: o servidor aceita (Credit(Wire.IMPORT_WINDOW)) ou recusa (ImportResult), e libera
+    // mais um pedaço (Credit(1)) a cada um integrado
+    record Import(byte[] psv, boolean last) implements Msg {}              // Cliente → servidor: pedaço do arquivo
+    record ImportResult(int lines, int added, int invalid, String error) implements Msg {} // Servidor → cliente: resumo ("" = sem erro)
+}
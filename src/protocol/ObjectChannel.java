@@ -0,0 +1,161 @@
+package protocol;
+
+import schema.Question; // Modelo de pergunta serializável
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+// Canal bloqueante no protocolo original (Object streams com Strings "RESULT|...", "ANSWER:..."),
+// mantido para falar com clientes e servidores antigos.
+public final class ObjectChannel implements MessageChannel {
+    private final Socket socket;
+    private final Counting.Out counterOut;
+    private final Counting.In counterIn;
+    private final ObjectOutputStream oos;
+    private final ObjectInputStream ois;
+
+    // Cria streams de objeto (oos primeiro, flush, depois ois). No servidor, o cabeçalho do
+    // cliente já foi lido na negociação e é devolvido ao ObjectInputStream via 'in'.
+    private ObjectChannel(Socket socket, InputStream in) throws IOException {
+        this.socket = socket;
+        this.counterOut = new Counting.Out(socket.getOutputStream());
+        this.counterIn = new Counting.In(in);
+        this.oos = new ObjectOutputStream(counterOut); oos.flush();
+        this.ois = new ObjectInputStream(counterIn);
+    }
+
+    static ObjectChannel client(Socket s) throws IOException {
+        return new ObjectChannel(s, s.getInputStream());
+    }
+
+    static ObjectChannel server(Socket s, byte[] header) throws IOException {
+        return new ObjectChannel(s, new SequenceInputStream(new ByteArrayInputStream(header), s.getInputStream()));
+    }
+
+    static boolean isStreamHeader(byte[] b) {
+        return b.length >= 4
+                && (short) (((b[0] & 0xFF) << 8) | (b[1] & 0xFF)) == ObjectStreamConstants.STREAM_MAGIC
+                && (short) (((b[2] & 0xFF) << 8) | (b[3] & 0xFF)) == ObjectStreamConstants.STREAM_VERSION;
+    }
+
+    @Override
+    public Msg read() throws IOException {
+        try {
+            return fromObject(ois.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new InvalidClassException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void send(Msg m) throws IOException {
+        write(m);
+        flush();
+    }
+
+    @Override
+    public void write(Msg m) throws IOException {
+        oos.writeObject(toObject(m));
+        if (m instanceof Msg.Ask || m instanceof Msg.Export) {
+            oos.reset(); // Não deixa a tabela de handles do stream segurar cada Question enviada
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        oos.flush();
+    }
+
+    @Override
+    public Socket socket() { return socket; }
+
+    @Override
+    public boolean legacy() { return true; }
+
+    @Override
+    public long bytesSent() { return counterOut.count; }
+
+    @Override
+    public long bytesReceived() { return counterIn.count; }
+
+    // Streams que contam os bytes que passam por eles
+    private static final class Counting {
+        static final class In extends FilterInputStream {
+            long count;
+
+            In(InputStream in) { super(in); }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) count++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) count += n;
+                return n;
+            }
+        }
+
+        static final class Out extends FilterOutputStream {
+            long count;
+
+            Out(OutputStream out) { super(out); }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                count++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                count += len;
+            }
+        }
+    }
+
+    // ---------- Mapeamento Msg ↔ objetos do protocolo antigo ----------
+    public static Object toObject(Msg m) {
+        if (m instanceof Msg.Banner b) return b.text();
+        if (m instanceof Msg.Ask a) return a.question();
+        if (m instanceof Msg.Answer a) return "ANSWER:" + a.questionId() + ":" + a.choice();
+        if (m instanceof Msg.Result r) return "RESULT|" + r.correct() + "|" + r.score();
+        if (m instanceof Msg.End e) return "END|" + e.score();
+        if (m instanceof Msg.Quit) return "SAIR";
+        if (m instanceof Msg.Bye b) return "BYE|" + b.score();
+        if (m instanceof Msg.Export e) return e.isRequest() ? "EXPORT" : new ArrayList<>(e.questions());
+        throw new IllegalArgumentException("unsupported message " + m);
+    }
+
+    // Objetos desconhecidos viram null (eram ignorados pelo servidor e pelo cliente)
+    public static Msg fromObject(Object obj) {
+        if (obj instanceof Question q) return new Msg.Ask(q);
+        if (obj instanceof List<?> list) {
+            List<Question> qs = new ArrayList<>(list.size());
+            for (Object o : list) if (o instanceof Question q) qs.add(q);
+            return new Msg.Export(qs);
+        }
+        if (!(obj instanceof String s)) return null;
+        if (s.equalsIgnoreCase("SAIR")) return new Msg.Quit();
+        if (s.equalsIgnoreCase("EXPORT")) return new Msg.Export(null);
+        if (s.startsWith("BANNER:")) return new Msg.Banner(s);
+        if (s.startsWith("ANSWER:")) {
+            String[] p = s.split(":", -1); // "ANSWER:<id>:<indice>"
+            return p.length == 3 ? new Msg.Answer(p[1], Integer.parseInt(p[2])) : null;
+        }
+        if (s.startsWith("RESULT|")) {
+            String[] p = s.split("\\|"); // "RESULT|<true/false>|<score>"
+            return new Msg.Result(p[1].equals("true"), Integer.parseInt(p[2]));
+        }
+        if (s.startsWith("END|")) return new Msg.End(Integer.parseInt(s.substring(4)));
+        if (s.startsWith("BYE|")) return new Msg.Bye(Integer.parseInt(s.substring(4)));
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package protocol;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Decodificador incremental do subconjunto da serialização Java que clientes e peers enviam
+// (apenas Strings: "ANSWER:...", "SAIR", "EXPORT"). Permite ler sem bloquear à espera do resto.
+public final class SerialStringDecoder {
+    public static final Object NULL = new Object(); // Representa um TC_NULL recebido
+
+    private byte[] buf = new byte[64];
+    private int len;                                         // Bytes válidos em buf
+    private boolean header;                                  // Cabeçalho do stream já consumido
+    private final List<String> handles = new ArrayList<>();  // Tabela de referências do stream
+
+    public void feed(ByteBuffer src) {
+        int n = src.remaining();
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        src.get(buf, len, n);
+        len += n;
+    }
+
+    // Próximo objeto completo, ou null se ainda faltam bytes
+    public Object next() throws IOException {
+        while (true) {
+            if (!header) {
+                if (len < 4) return null;
+                if ((short) readShort(0) != ObjectStreamConstants.STREAM_MAGIC
+                        || (short) readShort(2) != ObjectStreamConstants.STREAM_VERSION) {
+                    throw new StreamCorruptedException("invalid stream header");
+                }
+                header = true;
+                consume(4);
+            }
+            if (len < 1) return null;
+            switch (buf[0]) {
+                case ObjectStreamConstants.TC_RESET -> { handles.clear(); consume(1); }
+                case ObjectStreamConstants.TC_NULL -> { consume(1); return NULL; }
+                case ObjectStreamConstants.TC_REFERENCE -> {
+                    if (len < 5) return null;
+                    int h = ((readShort(1) << 16) | readShort(3)) - ObjectStreamConstants.baseWireHandle;
+                    if (h < 0 || h >= handles.size()) throw new StreamCorruptedException("invalid handle " + h);
+                    consume(5);
+                    return handles.get(h);
+                }
+                case ObjectStreamConstants.TC_STRING -> {
+                    if (len < 3) return null;
+                    int n = readShort(1);
+                    if (len < 3 + n) return null;
+                    String s = new DataInputStream(new ByteArrayInputStream(buf, 1, 2 + n)).readUTF();
+                    handles.add(s);
+                    consume(3 + n);
+                    return s;
+                }
+                default -> throw new StreamCorruptedException("unsupported type code " + (buf[0] & 0xFF));
+            }
+        }
+    }
+
+    private int readShort(int at) {
+        return ((buf[at] & 0xFF) << 8) | (buf[at + 1] & 0xFF);
+    }
+
+    private void consume(int n) {
+        System.arraycopy(buf, n, buf, 0, len - n);
+        len -= n;
+    }
+}
@@ -0,0 +1,275 @@
+package protocol;
+
+import schema.Question; // Modelo de pergunta
+
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Protocolo binário: preâmbulo de 4 bytes na conexão e depois frames
+//   [int tamanho][byte tipo][payload]   (tamanho = 1 + bytes do payload)
+// Inteiros do payload são varints (zigzag quando podem ser negativos); strings são varint + UTF-8.
+public final class Wire {
+    public static final int VERSION = 1;                                 // Versão que este código fala
+    public static final int PREAMBLE_SIZE = 4;                           // 'Q' 'Q' 'Z' <versão>
+    private static final byte[] MAGIC = {'Q', 'Q', 'Z'};
+    public static final int MAX_FRAME = 64 * 1024 * 1024;                // Limite de sanidade por frame (peers, IMPORT)
+    public static final int MAX_CONTROL_FRAME = 64 * 1024;               // Antes do HELLO e para jogadores
+    public static final int IMPORT_WINDOW = 4;                           // Pedaços de IMPORT em trânsito (após o 1º)
+    private static final int MIN_QUESTION_BYTES = 4;                     // Pergunta vazia: 3 tamanhos + índice da correta
+
+    // Tipos de frame
+    public static final byte BANNER = 1, QUESTION = 2, ANSWER = 3, RESULT = 4, END = 5, BYE = 6, EXPORT = 7,
+            HELLO = 8, DIGEST = 9, FETCH = 10, BATCH = 11, CREDIT = 12, PREFETCH = 13, IMPORT = 14;
+
+    private Wire() {}
+
+    // ---------- Negociação ----------
+    public static byte[] preamble(int version) {
+        return new byte[]{MAGIC[0], MAGIC[1], MAGIC[2], (byte) version};
+    }
+
+    // Versão anunciada no preâmbulo, ou -1 se os bytes não são do protocolo binário
+    public static int preambleVersion(byte[] b) {
+        if (b.length < PREAMBLE_SIZE || b[0] != MAGIC[0] || b[1] != MAGIC[1] || b[2] != MAGIC[2]) return -1;
+        return b[3] & 0xFF;
+    }
+
+    // ---------- Codificação ----------
+    // Escreve um frame completo em out. Lança BufferOverflowException se não couber (quem chama cresce o buffer).
+    public static void encode(Msg m, ByteBuffer out) {
+        int start = out.position();
+        out.position(start + 4); // Reserva o tamanho
+        if (m instanceof Msg.Hello h) {
+            out.put(HELLO); out.put((byte) h.role().ordinal());
+            // Campos opcionais no fim (servidores que não os conhecem os ignoram): tópicos e profundidade do pipeline
+            if (!h.topics().isEmpty() || h.pipeline() > 0) {
+                putVarint(out, h.topics().size());
+                for (String t : h.topics()) putString(out, t);
+            }
+            if (h.pipeline() > 0) putVarint(out, h.pipeline());
+        } else if (m instanceof Msg.Banner b) {
+            out.put(BANNER); putString(out, b.text());
+        } else if (m instanceof Msg.Ask a) {
+            out.put(QUESTION); putQuestion(out, a.question());
+        } else if (m instanceof Msg.Prefetch p) {
+            out.put(PREFETCH); putVarint(out, p.questions().size());
+            for (Question q : p.questions()) putQuestion(out, q);
+        } else if (m instanceof Msg.Answer a) {
+            out.put(ANSWER); putString(out, a.questionId()); putVarint(out, zigzag(a.choice()));
+        } else if (m instanceof Msg.Result r) {
+            out.put(RESULT); out.put((byte) (r.correct() ? 1 : 0)); putVarint(out, r.score());
+        } else if (m instanceof Msg.End e) {
+            out.put(END); putVarint(out, e.score());
+        } else if (m instanceof Msg.Quit) {
+            out.put(BYE); // Sem payload: pedido de saída
+        } else if (m instanceof Msg.Bye b) {
+            out.put(BYE); putVarint(out, b.score());
+        } else if (m instanceof Msg.DigestRequest d) {
+            out.put(DIGEST);
+            if (d.groups() == null) {
+                out.put((byte) 0); // Resumos de todos os grupos
+            } else {
+                out.put((byte) 1); putInts(out, d.groups());
+            }
+        } else if (m instanceof Msg.DigestReply d) {
+            out.put(DIGEST); out.put((byte) 2);
+            putVarint(out, d.digests().length);
+            for (long v : d.digests()) out.putLong(v);
+        } else if (m instanceof Msg.Fetch f) {
+            out.put(FETCH); putInts(out, f.leaves());
+            putVarint(out, f.haveKeys().length);
+            for (long k : f.haveKeys()) out.putLong(k);
+        } else if (m instanceof Msg.Batch b) {
+            out.put(BATCH); out.put((byte) (b.last() ? 1 : 0));
+            putVarint(out, b.questions().size());
+            for (Question q : b.questions()) putQuestion(out, q);
+        } else if (m instanceof Msg.Credit c) {
+            out.put(CREDIT); putVarint(out, c.batches());
+        } else if (m instanceof Msg.Import i) {
+            out.put(IMPORT); out.put((byte) (i.last() ? 1 : 0));
+            putVarint(out, i.psv().length); out.put(i.psv());
+        } else if (m instanceof Msg.ImportResult r) {
+            out.put(IMPORT); out.put((byte) 2);
+            putVarint(out, r.lines()); putVarint(out, r.added()); putVarint(out, r.invalid()); putString(out, r.error());
+        } else if (m instanceof Msg.Export e) {
+            out.put(EXPORT);
+            if (!e.isRequest()) { // Pedido não tem payload; resposta leva a lista
+                putVarint(out, e.questions().size());
+                for (Question q : e.questions()) putQuestion(out, q);
+            }
+        }
+        out.putInt(start, out.position() - start - 4);
+    }
+
+    // ---------- Decodificação ----------
+    // Lê o próximo frame de in. Retorna null (sem consumir nada) se o frame ainda não chegou inteiro.
+    public static Msg decode(ByteBuffer in) throws StreamCorruptedException {
+        return decode(in, MAX_FRAME);
+    }
+
+    // Com um limite de tamanho menor (ex.: conexão que ainda não declarou o papel)
+    public static Msg decode(ByteBuffer in, int maxFrame) throws StreamCorruptedException {
+        if (in.remaining() < 4) return null;
+        int len = in.getInt(in.position());
+        if (len < 1 || len > maxFrame) throw new StreamCorruptedException("bad frame length " + len);
+        if (in.remaining() < 4 + len) return null;
+
+        int end = in.position() + 4 + len;
+        ByteBuffer f = in.duplicate();
+        f.position(in.position() + 5).limit(end);
+        byte type = in.get(in.position() + 4);
+        in.position(end); // Consome o frame inteiro, mesmo que o payload tenha sobras
+        try {
+            return switch (type) {
+                case HELLO -> {
+                    Msg.Role role = Msg.Role.values()[f.get()];
+                    if (!f.hasRemaining()) yield new Msg.Hello(role);
+                    int n = getCount(f, 1);
+                    List<String> topics = new ArrayList<>(Math.min(n, 64));
+                    for (int i = 0; i < n; i++) topics.add(getString(f));
+                    yield new Msg.Hello(role, topics, f.hasRemaining() ? getVarint(f) : 0);
+                }
+                case BANNER -> new Msg.Banner(getString(f));
+                case QUESTION -> new Msg.Ask(getQuestion(f));
+                case PREFETCH -> {
+                    int n = getCount(f, MIN_QUESTION_BYTES);
+                    List<Question> qs = new ArrayList<>(Math.min(n, 64));
+                    for (int i = 0; i < n; i++) qs.add(getQuestion(f));
+                    yield new Msg.Prefetch(qs);
+                }
+                case ANSWER -> new Msg.Answer(getString(f), unzigzag(getVarint(f)));
+                case RESULT -> new Msg.Result(f.get() != 0, getVarint(f));
+                case END -> new Msg.End(getVarint(f));
+                case BYE -> f.hasRemaining() ? new Msg.Bye(getVarint(f)) : new Msg.Quit();
+                case EXPORT -> {
+                    if (!f.hasRemaining()) yield new Msg.Export(null);
+                    int n = getCount(f, MIN_QUESTION_BYTES);
+                    List<Question> qs = new ArrayList<>(Math.min(n, 1 << 16));
+                    for (int i = 0; i < n; i++) qs.add(getQuestion(f));
+                    yield new Msg.Export(qs);
+                }
+                case DIGEST -> switch (f.get()) {
+                    case 0 -> new Msg.DigestRequest(null);
+                    case 1 -> new Msg.DigestRequest(getInts(f));
+                    case 2 -> {
+                        long[] d = new long[getCount(f, Long.BYTES)];
+                        for (int i = 0; i < d.length; i++) d[i] = f.getLong();
+                        yield new Msg.DigestReply(d);
+                    }
+                    default -> throw new StreamCorruptedException("bad digest frame");
+                };
+                case FETCH -> {
+                    int[] leaves = getInts(f);
+                    long[] keys = new long[getCount(f, Long.BYTES)];
+                    for (int i = 0; i < keys.length; i++) keys[i] = f.getLong();
+                    yield new Msg.Fetch(leaves, keys);
+                }
+                case BATCH -> {
+                    boolean last = f.get() != 0;
+                    int n = getCount(f, MIN_QUESTION_BYTES);
+                    List<Question> qs = new ArrayList<>(Math.min(n, 1 << 16));
+                    for (int i = 0; i < n; i++) qs.add(getQuestion(f));
+                    yield new Msg.Batch(qs, last);
+                }
+                case CREDIT -> new Msg.Credit(getVarint(f));
+                case IMPORT -> {
+                    byte kind = f.get(); // 0 = pedaço, 1 = último pedaço, 2 = resumo
+                    if (kind == 2) yield new Msg.ImportResult(getVarint(f), getVarint(f), getVarint(f), getString(f));
+                    if (kind != 0 && kind != 1) throw new StreamCorruptedException("bad import frame");
+                    byte[] psv = new byte[getCount(f, 1)];
+                    f.get(psv);
+                    yield new Msg.Import(psv, kind == 1);
+                }
+                default -> throw new StreamCorruptedException("unknown frame type " + type);
+            };
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                 | NegativeArraySizeException e) {
+            throw new StreamCorruptedException("truncated frame type " + type);
+        }
+    }
+
+    // ---------- Campos ----------
+    static void putQuestion(ByteBuffer out, Question q) {
+        putString(out, q.topic);
+        putString(out, q.text);
+        putVarint(out, q.options.size());
+        for (String o : q.options) putString(out, o);
+        putVarint(out, zigzag(q.correct));
+    }
+
+    static Question getQuestion(ByteBuffer in) {
+        String topic = getString(in);
+        String text = getString(in);
+        String[] opts = new String[getCount(in, 1)];
+        for (int i = 0; i < opts.length; i++) opts[i] = getString(in);
+        int correct = unzigzag(getVarint(in));
+        return new Question(topic, text, Arrays.asList(opts), correct); // id é recalculado do conteúdo
+    }
+
+    static void putInts(ByteBuffer out, int[] v) {
+        putVarint(out, v.length);
+        for (int x : v) putVarint(out, x);
+    }
+
+    static int[] getInts(ByteBuffer in) {
+        int[] v = new int[getCount(in, 1)];
+        for (int i = 0; i < v.length; i++) v[i] = getVarint(in);
+        return v;
+    }
+
+    static void putString(ByteBuffer out, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        putVarint(out, b.length);
+        out.put(b);
+    }
+
+    static String getString(ByteBuffer in) {
+        int n = getVarint(in);
+        if (n > in.remaining()) throw new BufferUnderflowException();
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), n, StandardCharsets.UTF_8);
+            in.position(in.position() + n);
+        } else {
+            byte[] b = new byte[n];
+            in.get(b);
+            s = new String(b, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    // Quantidade de elementos que vem a seguir no frame. Cada elemento ocupa ao menos minBytes, então uma
+    // contagem maior que o resto do payload é frame inválido: recusada antes de alocar o array
+    static int getCount(ByteBuffer in, int minBytes) {
+        int n = getVarint(in);
+        if (n < 0 || n > in.remaining() / minBytes) throw new BufferUnderflowException();
+        return n;
+    }
+
+    static void putVarint(ByteBuffer out, int v) {
+        while ((v & ~0x7F) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    static int zigzag(int v) { return (v << 1) ^ (v >> 31); }
+
+    static int unzigzag(int v) { return (v >>> 1) ^ -(v & 1); }
+}
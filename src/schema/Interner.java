@@ -0,0 +1,23 @@
+package schema;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tabela de valores repetidos (tópicos, alternativas como "Verdadeiro"/"Falso" e listas inteiras delas):
+// perguntas iguais nesses campos passam a apontar para a mesma instância. Limitada em entradas, para que
+// valores que nunca se repetem não façam a tabela crescer sem fim; cheia, devolve o próprio valor.
+final class Interner<T> {
+    private final ConcurrentHashMap<T, T> pool = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    Interner(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    T intern(T value) {
+        T shared = pool.get(value);
+        if (shared != null) return shared;
+        if (pool.size() >= maxEntries) return value;
+        shared = pool.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+}
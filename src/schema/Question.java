@@ -1,49 +1,202 @@
 package schema;
 
-import java.io.Serializable;
+import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Question implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    public final String id;       // gerado automaticamente
+    // Forma serializada do protocolo antigo (mesma de antes): o id vai como texto, no formato antigo,
+    // para que clientes e peers antigos respondam e deduplicem com os ids que conhecem
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", String.class),
+            new ObjectStreamField("topic", String.class),
+            new ObjectStreamField("text", String.class),
+            new ObjectStreamField("options", List.class),
+            new ObjectStreamField("correct", int.class),
+    };
+
+    private static final int SHARED_MAX_LENGTH = 48;          // Alternativas maiores raramente se repetem
+    private static final Interner<String> TOPICS = new Interner<>(1 << 16);
+    private static final Interner<String> OPTIONS = new Interner<>(1 << 16);
+    private static final Interner<List<String>> OPTION_LISTS = new Interner<>(1 << 16);
+
+    public final long key;             // Hash de 64 bits do conteúdo (o id é ele em hexadecimal)
     public final String topic;
     public final String text;
     public final List<String> options;
     public final int correct; // índice 0-based
 
-    // Gera ID determinístico simples
-    private static String generateId(String topic, String text, List<String> options, int correct) {
-        String key = topic + "|" + text + "|" + String.join(";", options) + "|" + correct;
-        return Integer.toHexString(key.hashCode());
-    }
+    private transient Question restored; // Só durante a desserialização (ver readResolve)
 
     public Question(String topic, String text, List<String> options, int correct) {
-        this.id = generateId(topic, text, options, correct);
-        this.topic = topic.trim();
+        this.topic = TOPICS.intern(topic.trim());
         this.text = text.trim();
-        this.options = List.copyOf(options);
+        this.options = shareOptions(options);
         this.correct = correct;
+        this.key = contentHash(this.topic, this.text, this.options, correct);
+    }
+
+    // Id determinístico: os 64 bits de key em 16 dígitos hexadecimais
+    public String id() {
+        return formatId(key);
+    }
+
+    public static String formatId(long key) {
+        String hex = Long.toHexString(key);
+        return hex.length() == 16 ? hex : "0".repeat(16 - hex.length()) + hex;
+    }
+
+    // key de um id em texto; NumberFormatException se não for um id válido
+    public static long parseId(String id) {
+        if (id.isEmpty() || id.length() > 16) throw new NumberFormatException("bad id " + id);
+        return Long.parseUnsignedLong(id, 16);
     }
 
-    // Serialização simples em PSV
+    // O id recebido (ex.: numa resposta) é o desta pergunta, no formato atual ou no antigo
+    public boolean hasId(String id) {
+        if (id.length() != 16) return legacyId().equals(id);
+        try {
+            return parseId(id) == key;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Id de 32 bits das versões anteriores: hashCode de "topic|text|opt0;opt1;...|correct" em hexadecimal.
+    // Usado só com quem ainda o espera (clientes e peers no protocolo serializado); calculado por partes,
+    // compondo os hashCode das Strings, que já ficam em cache.
+    public String legacyId() {
+        int h = append(0, topic);
+        h = 31 * h + '|';
+        h = append(h, text);
+        h = 31 * h + '|';
+        for (int i = 0; i < options.size(); i++) {
+            if (i > 0) h = 31 * h + ';';
+            h = append(h, options.get(i));
+        }
+        h = 31 * h + '|';
+        return Integer.toHexString(append(h, Integer.toString(correct)));
+    }
+
+    // hashCode de (prefixo + s) a partir do hashCode do prefixo: h·31^len(s) + s.hashCode()
+    private static int append(int h, String s) {
+        int pow = 1, base = 31;
+        for (int e = s.length(); e > 0; e >>= 1) {
+            if ((e & 1) != 0) pow *= base;
+            base *= base;
+        }
+        return h * pow + s.hashCode();
+    }
+
+    // Mesmo conteúdo (para distinguir uma colisão de key de uma pergunta repetida)
+    public boolean sameContent(Question o) {
+        return correct == o.correct && topic.equals(o.topic) && text.equals(o.text) && options.equals(o.options);
+    }
+
+    // FNV-1a de 64 bits sobre os caracteres, cada campo precedido do tamanho (sem ambiguidade de
+    // separadores), seguido do finalizador do MurmurHash3. Nunca 0 (0 marca posição vazia nas tabelas).
+    private static long contentHash(String topic, String text, List<String> options, int correct) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, topic);
+        h = mix(h, text);
+        h = step(h, options.size());
+        for (String o : options) h = mix(h, o);
+        h = step(h, correct);
+        h ^= h >>> 33; h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33; h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static long mix(long h, String s) {
+        h = step(h, s.length());
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        return h;
+    }
+
+    private static long step(long h, int v) {
+        return (h ^ v) * 0x100000001b3L;
+    }
+
+    // Alternativas curtas e listas só com elas são compartilhadas entre perguntas
+    private static List<String> shareOptions(List<String> options) {
+        String[] opts = new String[options.size()];
+        boolean shortOnly = true;
+        for (int i = 0; i < opts.length; i++) {
+            String o = options.get(i);
+            if (o.length() <= SHARED_MAX_LENGTH) o = OPTIONS.intern(o);
+            else shortOnly = false;
+            opts[i] = o;
+        }
+        List<String> list = List.of(opts);
+        return shortOnly ? OPTION_LISTS.intern(list) : list;
+    }
+
+    // ---------- Serialização Java (protocolo antigo) ----------
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField f = out.putFields();
+        f.put("id", legacyId());
+        f.put("topic", topic);
+        f.put("text", text);
+        f.put("options", options);
+        f.put("correct", correct);
+        out.writeFields();
+    }
+
+    // Campos finais não podem ser lidos aqui: monta a pergunta pelo construtor (id recalculado do
+    // conteúdo) e readResolve a devolve no lugar desta instância
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField f = in.readFields();
+        try {
+            restored = new Question((String) f.get("topic", null), (String) f.get("text", null),
+                    (List<String>) f.get("options", null), f.get("correct", 0));
+        } catch (RuntimeException e) {
+            throw new InvalidObjectException("bad question: " + e);
+        }
+    }
+
+    private Object readResolve() {
+        return restored;
+    }
+
+    // Serialização simples em PSV ('|' dentro dos campos vira '¦'), montada num único StringBuilder:
+    // roda para cada registro do journal e cada linha do snapshot
     public String toPSV() {
-        return String.join("|",
-                id,
-                topic.replace("|", "¦"),
-                text.replace("|", "¦"),
-                String.join(";;", options).replace("|", "¦"),
-                Integer.toString(correct));
+        StringBuilder sb = new StringBuilder(24 + topic.length() + text.length() + 16 * options.size());
+        sb.append(id()).append('|');
+        escape(sb, topic).append('|');
+        escape(sb, text).append('|');
+        for (int i = 0; i < options.size(); i++) {
+            if (i > 0) sb.append(";;");
+            escape(sb, options.get(i));
+        }
+        return sb.append('|').append(correct).toString();
     }
 
-    // Reconstrói a partir de linha PSV
+    private static StringBuilder escape(StringBuilder sb, String field) {
+        return field.indexOf('|') < 0 ? sb.append(field) : sb.append(field.replace('|', '¦'));
+    }
+
+    // Reconstrói a partir de linha PSV (separadores por indexOf, sem regex nem split)
     public static Question fromPSV(String line) {
-        String[] p = line.split("\\|", -1);
-        if (p.length < 5) throw new IllegalArgumentException("bad PSV line");
-        String topic = p[1].replace("¦", "|");
-        String text = p[2].replace("¦", "|");
-        String[] opts = p[3].replace("¦", "|").split(";;", -1);
-        int correct = Integer.parseInt(p[4]);
-        return new Question(topic, text, List.of(opts), correct);
+        int b0 = line.indexOf('|'), b1 = line.indexOf('|', b0 + 1), b2 = line.indexOf('|', b1 + 1);
+        int b3 = b2 < 0 ? -1 : line.indexOf('|', b2 + 1);
+        if (b0 < 0 || b1 < 0 || b3 < 0) throw new IllegalArgumentException("bad PSV line");
+        List<String> opts = new ArrayList<>(4);
+        int from = b2 + 1;
+        for (int sep; (sep = line.indexOf(";;", from)) >= 0 && sep < b3; from = sep + 2) {
+            opts.add(unescape(line.substring(from, sep)));
+        }
+        opts.add(unescape(line.substring(from, b3)));
+        int cEnd = line.indexOf('|', b3 + 1);
+        int correct = Integer.parseInt(line, b3 + 1, cEnd < 0 ? line.length() : cEnd, 10);
+        return new Question(unescape(line.substring(b0 + 1, b1)), unescape(line.substring(b1 + 1, b2)), opts, correct);
+    }
+
+    private static String unescape(String field) {
+        return field.indexOf('¦') < 0 ? field : field.replace('¦', '|');
     }
 }
@@ -0,0 +1,119 @@
+package server;
+
+import schema.Question; // Modelo de pergunta
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;     // Mapeamento do arquivo em memória
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Carga do snapshot PSV: o arquivo é mapeado em memória e dividido em partes alinhadas a fim de linha,
+// analisadas em paralelo (cada linha é decodificada uma vez e lida por Question.fromPSV, sem regex).
+// Cada parte entra no banco de uma vez (addAll: um lock da tabela por parte, não por linha), assim as
+// threads não disputam o lock durante a análise. De perguntas repetidas fica a que entrar primeiro.
+final class BankLoader {
+    private static final long MIN_CHUNK = 1L << 20;         // Arquivos pequenos: uma parte só
+    private static final long MAX_CHUNK = 256L * 1024 * 1024; // Limite de um mapeamento
+
+    // Resultado da carga (para o log de [BOOT])
+    record Result(int records, int chunks, long nanos) {}
+
+    private BankLoader() {}
+
+    // Carrega perguntas e peers (linha "#PEERS ...") do arquivo. Linha inválida aborta a carga.
+    static Result load(Path file, QuestionBank bank, Set<String> peers) throws IOException {
+        long t0 = System.nanoTime();
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = fc.size();
+            long[] bounds = split(fc, size);
+            int chunks = bounds.length - 1;
+            int records;
+            try {
+                records = IntStream.range(0, chunks).parallel()
+                        .map(i -> loadChunk(fc, bounds[i], bounds[i + 1], bank, peers))
+                        .sum();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return new Result(records, chunks, System.nanoTime() - t0);
+        }
+    }
+
+    // Limites das partes: tamanho parecido por núcleo, cada limite avançado até depois de um '\n'
+    // (também usados pelo IMPORT de arquivo)
+    static long[] split(FileChannel fc, long size) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long chunk = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / (cores * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = chunk;
+        while (pos < size) {
+            long nl = nextLineStart(fc, pos, probe);
+            if (nl >= size) break;
+            bounds.add(nl);
+            pos = nl + chunk;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Posição logo depois do próximo '\n' a partir de pos (ou o fim do arquivo)
+    private static long nextLineStart(FileChannel fc, long pos, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int n = fc.read(probe, pos);
+            if (n <= 0) return Long.MAX_VALUE;
+            for (int i = 0; i < n; i++) if (probe.get(i) == '\n') return pos + i + 1;
+            pos += n;
+        }
+    }
+
+    // Analisa uma parte [from, to) e insere as perguntas no banco num lote só. Retorna quantas leu.
+    private static int loadChunk(FileChannel fc, long from, long to, QuestionBank bank, Set<String> peers) {
+        MappedByteBuffer mb;
+        try {
+            mb = fc.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] line = new byte[512]; // Reutilizado entre linhas (cresce se preciso)
+        List<Question> parsed = new ArrayList<>();
+        int start = 0;
+        int limit = mb.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && mb.get(i) != '\n') continue; // Última linha pode não ter '\n'
+            int len = i - start;
+            if (len > line.length) line = new byte[Math.max(len, line.length * 2)];
+            mb.get(start, line, 0, len);
+            if (len > 0 && line[len - 1] == '\r') len--;
+            if (len > 0) parseLine(line, len, from, parsed, peers);
+            start = i + 1;
+        }
+        bank.addAll(parsed); // Evita duplicatas (pela key)
+        return parsed.size();
+    }
+
+    private static void parseLine(byte[] line, int len, long chunkStart, List<Question> out, Set<String> peers) {
+        String s = new String(line, 0, len, StandardCharsets.UTF_8); // Uma decodificação por linha
+        if (s.startsWith("#PEERS ")) {
+            // Linha especial com peers → "#PEERS host1:port1,host2:port2,..."
+            String tail = s.substring(7).trim();
+            if (!tail.isEmpty()) peers.addAll(Arrays.asList(tail.split(",")));
+            return;
+        }
+        if (s.isBlank()) return; // Ignora linhas em branco
+        try {
+            out.add(Question.fromPSV(s));
+        } catch (IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException(
+                    "linha inválida na parte iniciada no byte " + chunkStart + ": " + e.getMessage(), e));
+        }
+    }
+}
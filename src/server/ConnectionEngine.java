@@ -0,0 +1,44 @@
+package server;
+
+import java.util.Locale;                 // Normalização do nome do modo
+import java.util.concurrent.ThreadFactory; // Criação das threads de sessão
+import java.util.concurrent.atomic.AtomicLong;
+
+// Modos de atendimento das conexões aceitas pelo servidor.
+public enum ConnectionEngine {
+    THREAD,  // Uma thread de plataforma por conexão (modo original)
+    VIRTUAL, // Uma thread virtual por conexão (JDK 21+; em JVMs antigas cai para THREAD)
+    NIO;     // Um único seletor orientado a eventos: sessões ociosas não ocupam thread
+
+    // Converte o argumento da linha de comando ("thread", "virtual", "nio")
+    public static ConnectionEngine parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("engine desconhecida: " + name + " (use thread, virtual ou nio)");
+        }
+    }
+
+    // Fábrica de threads para os modos bloqueantes (uma thread por sessão; também usada pelo loadgen)
+    public ThreadFactory sessionThreads() {
+        if (this == VIRTUAL) {
+            ThreadFactory virtual = virtualThreadFactory();
+            if (virtual != null) return virtual;
+            Log.info("[SERVE] Threads virtuais indisponíveis nesta JVM, usando threads de plataforma");
+        }
+        AtomicLong seq = new AtomicLong();
+        return r -> new Thread(r, "qaquiz-session-" + seq.incrementAndGet());
+    }
+
+    // Thread.ofVirtual() via reflexão: compila em JDK 17 e usa threads virtuais quando a JVM suportar
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> api = Class.forName("java.lang.Thread$Builder");
+            builder = api.getMethod("name", String.class, long.class).invoke(builder, "qaquiz-vsession-", 0L);
+            return (ThreadFactory) api.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // JVM sem threads virtuais (ou recurso em preview desabilitado)
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package server;
+
+import protocol.Msg;    // Lotes enviados ao peer
+import schema.Question; // Modelo de pergunta
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Resposta a um EXPORT/FETCH em lotes de tamanho fixo, lida sob demanda da origem
+// (sem copiar o banco): a memória de quem envia não cresce com o tamanho do banco.
+final class ExportStream {
+    static final int BATCH_SIZE = 512; // Perguntas por lote
+    static final int WINDOW = 4;       // Lotes em trânsito que o receptor libera de início (créditos)
+
+    private final Iterator<Question> source;
+    final long startedAt = System.nanoTime(); // Para a duração do envio (Metrics.exportDuration)
+    private int sent;     // Perguntas enviadas até agora
+    private boolean done; // Último lote já produzido
+
+    ExportStream(Iterator<Question> source) {
+        this.source = source;
+    }
+
+    // Próximo lote; o último vem marcado (pode ser vazio quando não há nada a enviar)
+    Msg.Batch next() {
+        List<Question> batch = new ArrayList<>(BATCH_SIZE);
+        while (batch.size() < BATCH_SIZE && source.hasNext()) batch.add(source.next());
+        sent += batch.size();
+        done = !source.hasNext();
+        return new Msg.Batch(batch, done);
+    }
+
+    boolean done() { return done; }
+
+    int sent() { return sent; }
+}
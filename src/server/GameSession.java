@@ -0,0 +1,86 @@
+package server;
+
+import schema.Question; // Modelo de pergunta
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Estado de uma partida, independente do transporte (thread bloqueante ou seletor NIO).
+// As perguntas vêm do vetor compartilhado do banco; a ordem é um Fisher–Yates feito passo a passo:
+// cada pergunta é sorteada só quando vai ser enviada, e as trocas ficam num mapa esparso.
+// A memória da sessão cresce com as perguntas servidas, não com o tamanho do banco.
+//
+// No modo pipeline o jogador recebe até 'window' perguntas adiantadas: as respostas chegam na ordem
+// de envio e cada uma vale para a pergunta mais antiga ainda sem resposta (mesma pontuação do modo clássico).
+final class GameSession {
+    static final int MAX_PIPELINE = 16;                      // Limite da profundidade pedida pelo cliente
+
+    private final Question[] pool;                           // Vetor compartilhado (somente leitura)
+    private final Map<Integer, Integer> swapped = new HashMap<>(); // Posições já trocadas → índice no pool
+    private final int window;                                // Perguntas sem resposta no máximo (1 = clássico)
+    private final Question[] pending;                        // Enviadas e ainda sem resposta (fila circular, em ordem)
+    private final long[] sentAt;                             // Envio de cada uma (System.nanoTime), para o RTT
+    private int head = 0;                                    // Posição da mais antiga sem resposta
+    private int count = 0;                                   // Perguntas sem resposta
+    final boolean pipelined;                                 // Envia PREFETCH em vez de uma pergunta por vez
+    private int idx = 0;                                     // Perguntas já sorteadas
+    private int score = 0;                                   // Pontuação acumulada
+    boolean active;                                          // Contada em Metrics.sessionsActive
+
+    GameSession(Question[] pool) {
+        this(pool, 0);
+    }
+
+    // pipeline = perguntas adiantadas pedidas no HELLO (0 = uma por vez)
+    GameSession(Question[] pool, int pipeline) {
+        this.pool = pool;
+        this.pipelined = pipeline > 0;
+        this.window = Math.max(1, Math.min(pipeline, MAX_PIPELINE));
+        this.pending = new Question[window];
+        this.sentAt = new long[window];
+    }
+
+    // Sorteia a próxima pergunta a enviar, se a janela e o banco permitirem (senão null).
+    // O instante do sorteio é o do envio: quem chama manda a pergunta em seguida.
+    Question deal() {
+        if (count >= window || idx >= pool.length) return null;
+        Question q = draw();
+        int tail = (head + count++) % window;
+        pending[tail] = q;
+        sentAt[tail] = System.nanoTime();
+        return q;
+    }
+
+    // Há pergunta enviada esperando resposta
+    boolean awaiting() { return count > 0; }
+
+    // Envio (System.nanoTime) da pergunta que a próxima resposta vai responder. Só vale com awaiting().
+    long askedAt() { return sentAt[head]; }
+
+    // Valida a resposta para a pergunta mais antiga sem resposta. Retorna se acertou.
+    boolean answer(String qid, int choice) {
+        Question q = pending[head];
+        pending[head] = null;
+        head = (head + 1) % window;
+        count--;
+        boolean correct = q.hasId(qid) && choice == q.correct;
+        if (correct) score++;
+        return correct;
+    }
+
+    // Todas as perguntas foram sorteadas e respondidas
+    boolean finished() { return idx >= pool.length && count == 0; }
+
+    int score() { return score; }
+
+    // Passo idx do Fisher–Yates: sorteia j em [idx, n) e troca as posições idx e j
+    private Question draw() {
+        int j = idx + ThreadLocalRandom.current().nextInt(pool.length - idx);
+        int atJ = swapped.getOrDefault(j, j);
+        Integer atIdx = swapped.remove(idx); // A posição idx não é mais visitada
+        if (j != idx) swapped.put(j, atIdx == null ? idx : atIdx);
+        idx++;
+        return pool[atJ];
+    }
+}
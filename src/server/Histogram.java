@@ -0,0 +1,79 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latências com baldes fixos em potências de 2 de microssegundos.
+// record() não aloca e usa contadores listrados (LongAdder), então pode ficar no caminho quente.
+final class Histogram {
+    private static final int BUCKETS = 32; // Balde i conta latências < 2^i µs (o último pega o resto)
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    // Registra o tempo decorrido desde startNanos (System.nanoTime)
+    void recordSince(long startNanos) {
+        recordMicros((System.nanoTime() - startNanos) / 1_000);
+    }
+
+    void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+        count.increment();
+        sumMicros.add(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) { }
+    }
+
+    long count() { return count.sum(); }
+
+    // Limite superior (µs) do balde que contém o percentil p (0..1)
+    long percentileMicros(double p) {
+        long total = count.sum();
+        if (total == 0) return 0;
+        long target = (long) Math.ceil(p * total), seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= target) return Math.min(upperBound(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    // Resumo de uma linha para o console admin
+    String summary() {
+        long n = count.sum();
+        if (n == 0) return "n=0";
+        return String.format("n=%d média=%s p50=%s p99=%s p999=%s máx=%s", n,
+                fmt(sumMicros.sum() / n), fmt(percentileMicros(0.50)), fmt(percentileMicros(0.99)),
+                fmt(percentileMicros(0.999)), fmt(maxMicros.get()));
+    }
+
+    // Formato texto do Prometheus: baldes cumulativos (le em segundos), _sum e _count
+    void prometheus(StringBuilder sb, String name, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            cumulative += buckets[i].sum();
+            sb.append(name).append("_bucket{le=\"").append(upperBound(i) / 1e6).append("\"} ").append(cumulative).append('\n');
+        }
+        long n = cumulative + buckets[BUCKETS - 1].sum(); // Soma dos baldes: contagem coerente com eles
+        sb.append(name).append("_bucket{le=\"+Inf\"} ").append(n).append('\n');
+        sb.append(name).append("_sum ").append(sumMicros.sum() / 1e6).append('\n');
+        sb.append(name).append("_count ").append(n).append('\n');
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    private static String fmt(long micros) {
+        return micros < 1_000 ? micros + "µs" : String.format("%.1fms", micros / 1_000.0);
+    }
+}
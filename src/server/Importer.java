@@ -0,0 +1,173 @@
+package server;
+
+import schema.Question; // Modelo de pergunta
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;     // Arquivo mapeado em memória
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Ingestão em massa de perguntas em PSV (comando IMPORT e mensagem IMPORT):
+//   linhas → análise e validação → lote de BATCH perguntas → banco (deduplicado, um lock por lote)
+//   → um registro no journal por lote (fsync em grupo, em paralelo com a análise do lote seguinte)
+// Linhas inválidas são contadas e puladas (a primeira fica no resumo); não abortam a importação.
+// Um lote que o journal não conseguiu gravar também entra no resumo: as perguntas ficam no banco,
+// mas não sobrevivem a um reinício.
+// Arquivos são analisados em partes por THREADS threads próprias (metade dos núcleos, por padrão):
+// as partidas continuam sendo atendidas durante a importação.
+final class Importer {
+    static final int BATCH = 4096;              // Perguntas por inserção no banco e por registro no journal
+    static final int THREADS = Math.max(1, Integer.getInteger("qaquiz.import.threads",
+            Runtime.getRuntime().availableProcessors() / 2));
+    private static final int MAX_ERROR_LENGTH = 160; // Linha inválida citada no resumo
+
+    private final QuestionBank bank;
+    private final Journal journal;
+    private final Metrics metrics;
+
+    // Resumo de uma importação (unsaved = novas que o journal não gravou; journalError = "" se todas foram)
+    record Result(int lines, int added, int invalid, String error, int unsaved, String journalError, long nanos) {
+        int duplicates() { return lines - added - invalid; }
+    }
+
+    Importer(QuestionBank bank, Journal journal, Metrics metrics) {
+        this.bank = bank;
+        this.journal = journal;
+        this.metrics = metrics;
+    }
+
+    // ---------- Arquivo local ----------
+    // Importa um arquivo, em partes alinhadas a fim de linha (as mesmas da carga do snapshot)
+    Result importFile(Path file) throws IOException {
+        Session session = open();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "qaquiz-import");
+            t.setDaemon(true);
+            return t;
+        });
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = BankLoader.split(fc, fc.size());
+            List<Future<?>> parts = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i], to = bounds[i + 1];
+                parts.add(pool.submit(() -> {
+                    session.accept(fc.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+                    return null;
+                }));
+            }
+            for (Future<?> f : parts) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("importação interrompida", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return session.finish();
+    }
+
+    // ---------- Sessão ----------
+    Session open() {
+        return new Session();
+    }
+
+    // Uma importação em andamento. accept pode ser chamado por várias threads ao mesmo tempo.
+    final class Session {
+        private final long startedAt = System.nanoTime();
+        private final AtomicInteger lines = new AtomicInteger();   // Linhas de pergunta (sem brancos e comentários)
+        private final AtomicInteger added = new AtomicInteger();
+        private final AtomicInteger invalid = new AtomicInteger();
+        private final AtomicInteger chunks = new AtomicInteger();  // Partes/pedaços já analisados
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+        private final AtomicInteger unsaved = new AtomicInteger();  // Novas em lotes que o journal não gravou
+        private final AtomicReference<String> journalError = new AtomicReference<>(); // Primeira falha do journal
+        private final Queue<CompletableFuture<Void>> persisted = new ConcurrentLinkedQueue<>(); // Lotes no journal
+
+        // Analisa as linhas inteiras de buf (a última pode vir sem '\n') e integra em lotes
+        void accept(ByteBuffer buf) {
+            List<Question> batch = new ArrayList<>(BATCH);
+            byte[] line = new byte[512]; // Reutilizado entre linhas (cresce se preciso)
+            int start = buf.position(), limit = buf.limit();
+            for (int i = start; i <= limit; i++) {
+                if (i < limit && buf.get(i) != '\n') continue;
+                int len = i - start;
+                if (len > line.length) line = new byte[Math.max(len, line.length * 2)];
+                buf.get(start, line, 0, len);
+                if (len > 0 && line[len - 1] == '\r') len--;
+                start = i + 1;
+                if (len == 0 || line[0] == '#') continue; // Brancos, comentários e a linha #PEERS de um snapshot
+                Question q = parse(new String(line, 0, len, StandardCharsets.UTF_8));
+                if (q == null) continue;
+                batch.add(q);
+                if (batch.size() == BATCH) {
+                    commit(batch);
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            commit(batch);
+            chunks.incrementAndGet();
+        }
+
+        int chunks() { return chunks.get(); }
+
+        // Linha → pergunta válida, ou null (contada como inválida)
+        private Question parse(String s) {
+            lines.incrementAndGet();
+            try {
+                Question q = Question.fromPSV(s);
+                if (q.topic.isEmpty() || q.text.isEmpty()) throw new IllegalArgumentException("tópico ou enunciado vazio");
+                if (q.options.size() < 2) throw new IllegalArgumentException("menos de 2 alternativas");
+                if (q.correct < 0 || q.correct >= q.options.size()) {
+                    throw new IllegalArgumentException("alternativa correta fora do intervalo: " + q.correct);
+                }
+                return q;
+            } catch (IllegalArgumentException e) {
+                invalid.incrementAndGet();
+                if (firstError.get() == null) {
+                    String shown = s.length() > MAX_ERROR_LENGTH ? s.substring(0, MAX_ERROR_LENGTH) + "..." : s;
+                    firstError.compareAndSet(null, e.getMessage() + ": " + shown);
+                }
+                return null;
+            }
+        }
+
+        // Lote → banco (deduplicado) → um registro no journal com as perguntas novas
+        private void commit(List<Question> batch) {
+            if (batch.isEmpty()) return;
+            List<Question> fresh = bank.addAll(batch);
+            if (fresh.isEmpty()) return;
+            added.addAndGet(fresh.size());
+            // A falha é anotada antes de o lote sair da fila: um lote concluído já está nas contas
+            persisted.add(journal.addQuestions(fresh).handle((ok, e) -> {
+                if (e != null) {
+                    unsaved.addAndGet(fresh.size());
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    journalError.compareAndSet(null, String.valueOf(cause.getMessage()));
+                }
+                return null;
+            }));
+            persisted.removeIf(CompletableFuture::isDone); // Só os lotes ainda sem fsync
+        }
+
+        // Espera o fsync dos lotes e fecha as contas
+        Result finish() {
+            for (CompletableFuture<Void> f : persisted) f.join(); // Nunca falha: handle já anotou o erro
+            String error = firstError.get(), journalFailure = journalError.get();
+            Result r = new Result(lines.get(), added.get(), invalid.get(), error == null ? "" : error,
+                    unsaved.get(), journalFailure == null ? "" : journalFailure, System.nanoTime() - startedAt);
+            metrics.imports.increment();
+            metrics.importLines.add(r.lines());
+            metrics.importAdded.add(r.added());
+            metrics.importInvalid.add(r.invalid());
+            metrics.importDuration.recordSince(startedAt);
+            return r;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package server;
+
+import schema.Question; // Modelo de pergunta
+
+import java.io.*;                           // Leitura/escrita de texto
+import java.nio.ByteBuffer;                 // Buffer do lote a gravar
+import java.nio.channels.FileChannel;       // Escrita + fsync do journal
+import java.nio.charset.StandardCharsets;   // UTF-8 nos registros
+import java.nio.file.*;                     // Arquivos do snapshot e do journal
+import java.util.*;                         // Coleções utilitárias
+import java.util.concurrent.*;              // Fila, futuros e thread de compactação
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Persistência append-only: cada mudança vira uma linha no journal ("Q|<psv>" ou "P|host:port").
+// Uma thread grava os registros em lotes com um único fsync por lote (group commit). Quando o journal
+// cresce, ele é rotacionado e um snapshot PSV completo é gravado em segundo plano. O limite acompanha
+// o tamanho do último snapshot: uma importação grande não regrava o banco inteiro a cada poucos MB, e
+// a recuperação nunca relê mais que um snapshot de journal.
+//
+// Arquivos:  <data>            snapshot PSV (#PEERS + perguntas)
+//            <data>.journal    registros desde o último snapshot
+//            <data>.journal.old journal rotacionado, apagado quando o snapshot novo está no disco
+final class Journal implements Closeable {
+    static final long COMPACT_BYTES = 8L * 1024 * 1024; // Tamanho mínimo do journal que dispara a compactação
+    private static final int MAX_BATCH = 4096;          // Registros por fsync, no máximo
+
+    // Grava o estado completo atual (chamado durante a compactação)
+    interface Snapshot {
+        void writeTo(BufferedWriter w) throws IOException;
+    }
+
+    private record Entry(byte[] bytes, CompletableFuture<Void> done) {}
+
+    private static final Entry STOP = new Entry(new byte[0], null);
+
+    private final Path dataFile, journalFile, rotatedFile;
+    private final Snapshot snapshot;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "qaquiz-journal-compact");
+        t.setDaemon(true);
+        return t;
+    });
+    private FileChannel channel;   // Só a thread de escrita usa
+    private long journalBytes;     // Tamanho atual do journal
+    private volatile long compactAt = COMPACT_BYTES; // Maior entre COMPACT_BYTES e o último snapshot
+    private Thread writer;
+
+    Journal(Path dataFile, Snapshot snapshot) {
+        this.dataFile = dataFile;
+        this.journalFile = dataFile.resolveSibling(dataFile.getFileName() + ".journal");
+        this.rotatedFile = dataFile.resolveSibling(dataFile.getFileName() + ".journal.old");
+        this.snapshot = snapshot;
+    }
+
+    // ---------- Recuperação ----------
+    // Reaplica o que ficou fora do snapshot (journal rotacionado e journal atual). Retorna registros lidos.
+    // Reaplicar é idempotente: perguntas e peers já presentes são ignorados por quem consome.
+    int replay(Consumer<Question> onQuestion, Consumer<String> onPeer) throws IOException {
+        int n = 0;
+        for (Path p : List.of(rotatedFile, journalFile)) {
+            if (!Files.exists(p)) continue;
+            try (BufferedReader r = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    try {
+                        if (line.startsWith("Q|")) onQuestion.accept(Question.fromPSV(line.substring(2)));
+                        else if (line.startsWith("P|")) onPeer.accept(peer(line.substring(2)));
+                        else continue;
+                        n++;
+                    } catch (RuntimeException torn) {
+                        // Última linha cortada por uma queda no meio da escrita: ignora
+                        Log.error("[JOURNAL] Registro ilegível ignorado em %s", p.getFileName());
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    // "host:port" de um registro P|, ou IllegalArgumentException (ex.: fragmento de uma linha cortada)
+    static String peer(String s) {
+        int sep = s.lastIndexOf(':');
+        if (sep <= 0 || s.chars().anyMatch(c -> c == '|' || c == ',' || Character.isWhitespace(c))) {
+            throw new IllegalArgumentException("peer inválido: " + s);
+        }
+        int port = Integer.parseInt(s.substring(sep + 1));
+        if (port < 1 || port > 65535) throw new IllegalArgumentException("porta inválida: " + s);
+        return s;
+    }
+
+    // Abre o journal para acréscimo e inicia a thread de escrita. Se uma compactação anterior
+    // não terminou (existe .journal.old), grava o snapshot agora, antes de aceitar registros novos.
+    // Uma linha cortada no fim (queda no meio da escrita) é descartada: o próximo registro não gruda nela.
+    void start() throws IOException {
+        if (Files.exists(rotatedFile)) {
+            writeSnapshot();
+            Files.deleteIfExists(journalFile);
+            Files.delete(rotatedFile);
+        }
+        if (Files.exists(dataFile)) compactAt = Math.max(COMPACT_BYTES, Files.size(dataFile));
+        if (Files.exists(journalFile)) dropTornTail();
+        openJournal();
+        writer = new Thread(this::writeLoop, "qaquiz-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Corta o journal logo depois do último '\n'
+    private void dropTornTail() throws IOException {
+        try (FileChannel ch = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size(), end = lastRecordEnd(ch);
+            if (end == size) return;
+            Log.error("[JOURNAL] %d bytes de um registro incompleto descartados", size - end);
+            ch.truncate(end);
+            ch.force(false);
+        }
+    }
+
+    // Posição logo depois do último '\n' (0 se não houver nenhum)
+    private static long lastRecordEnd(FileChannel ch) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long end = ch.size();
+        while (end > 0) {
+            long from = Math.max(0, end - buf.capacity());
+            buf.clear().limit((int) (end - from));
+            while (buf.hasRemaining() && ch.read(buf, from + buf.position()) >= 0) {}
+            for (int i = buf.position() - 1; i >= 0; i--) if (buf.get(i) == '\n') return from + i + 1;
+            end = from;
+        }
+        return 0;
+    }
+
+    // ---------- Registros ----------
+    CompletableFuture<Void> addQuestions(Collection<Question> qs) {
+        if (qs.isEmpty()) return CompletableFuture.completedFuture(null);
+        StringBuilder sb = new StringBuilder(qs.size() * 96);
+        for (Question q : qs) sb.append("Q|").append(q.toPSV()).append('\n');
+        return append(sb);
+    }
+
+    CompletableFuture<Void> addPeer(String peer) {
+        return append("P|" + peer + "\n");
+    }
+
+    // O futuro completa depois do fsync do lote que contém o registro
+    private CompletableFuture<Void> append(CharSequence records) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Entry(records.toString().getBytes(StandardCharsets.UTF_8), done));
+        return done;
+    }
+
+    // Grava os registros pendentes e para a thread de escrita (usado ao encerrar o processo)
+    @Override
+    public void close() {
+        if (writer != null) {
+            queue.add(STOP);
+            try { writer.join(5_000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        compactor.shutdown(); // Um snapshot em andamento termina; nenhum novo começa
+    }
+
+    // ---------- Thread de escrita (group commit) ----------
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1); // Tudo que chegou durante o fsync anterior vai junto
+                running = !batch.remove(STOP);
+                int size = 0;
+                for (Entry e : batch) size += e.bytes.length;
+                ByteBuffer buf = ByteBuffer.allocate(size);
+                for (Entry e : batch) buf.put(e.bytes);
+                buf.flip();
+                if (!channel.isOpen()) openJournal(); // Uma falha anterior deixou o journal fechado
+                while (buf.hasRemaining()) channel.write(buf);
+                channel.force(false); // Um fsync para o lote inteiro
+                journalBytes += size;
+                for (Entry e : batch) e.done.complete(null);
+                if (journalBytes >= compactAt) maybeCompact();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                Log.error("[ERRO] journal: %s", e.getMessage());
+                for (Entry en : batch) if (en.done != null) en.done.completeExceptionally(e);
+                try { if (channel.isOpen()) channel.truncate(journalBytes); } // Sem lote pela metade no fim
+                catch (IOException ignore) {}
+            }
+            batch.clear();
+        }
+        try { channel.close(); } catch (IOException ignore) {}
+    }
+
+    // ---------- Compactação ----------
+    // Roda na thread de escrita: rotaciona o journal e deixa o snapshot para a thread de compactação.
+    // Tudo que está no journal rotacionado já foi aplicado à memória, então o snapshot cobre esses registros.
+    private void maybeCompact() throws IOException {
+        if (!compacting.compareAndSet(false, true)) return; // Uma compactação por vez
+        // Um snapshot anterior falhou: o .journal.old ainda tem registros fora do snapshot e não pode ser
+        // substituído. O snapshot novo cobre os dois journals, então só tenta de novo.
+        if (!Files.exists(rotatedFile)) {
+            boolean rotated = false;
+            try {
+                channel.close();
+                Files.move(journalFile, rotatedFile);
+                rotated = true;
+                openJournal();
+            } catch (IOException e) {
+                try {
+                    if (rotated) Files.move(rotatedFile, journalFile, StandardCopyOption.REPLACE_EXISTING);
+                    if (!channel.isOpen()) openJournal(); // Segue gravando no journal de antes
+                } catch (IOException again) {
+                    e.addSuppressed(again); // O próximo lote tenta reabrir
+                }
+                compacting.set(false);
+                throw e;
+            }
+        }
+        compactor.execute(() -> {
+            long t0 = System.nanoTime();
+            try {
+                writeSnapshot();
+                Files.delete(rotatedFile);
+                Log.info("[JOURNAL] Snapshot compactado em %d ms", (System.nanoTime() - t0) / 1_000_000);
+            } catch (IOException e) {
+                Log.error("[ERRO] compactação: %s", e.getMessage()); // .journal.old fica para a recuperação
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    // Snapshot completo num arquivo temporário, com fsync, trocado atomicamente pelo arquivo de dados
+    void writeSnapshot() throws IOException {
+        Path tmp = dataFile.resolveSibling(dataFile.getFileName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            snapshot.writeTo(w);
+            w.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        compactAt = Math.max(COMPACT_BYTES, Files.size(dataFile));
+    }
+
+    private void openJournal() throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        journalBytes = channel.size();
+    }
+}
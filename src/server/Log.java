@@ -0,0 +1,132 @@
+package server;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Log assíncrono do servidor: quem loga só reserva uma posição num buffer circular limitado e guarda
+// o formato + argumentos (sem formatar nem tocar no System.out). Uma thread de fundo formata e escreve
+// em lotes. Com o buffer cheio a mensagem é descartada e contada, sem bloquear a sessão.
+//
+// Configuração (propriedades do sistema, ou o comando LOG do console):
+//   qaquiz.log.level   = error | info   (padrão info)
+//   qaquiz.log.answers = N  → registra 1 a cada N respostas ([GAME] ... respondeu); 0 desliga (padrão 1)
+//   qaquiz.log.buffer  = tamanho do buffer em mensagens (potência de 2, padrão 65536)
+final class Log {
+    enum Level { ERROR, INFO }
+
+    private record Event(boolean err, String fmt, Object[] args) {}
+
+    private static final long FLUSH_INTERVAL_NS = 2_000_000; // Espera da thread de escrita com o buffer vazio
+
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(1024, Integer.getInteger("qaquiz.log.buffer", 1 << 16)));
+    private static final AtomicReferenceArray<Event> ring = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong(); // Próxima posição a reservar (produtores)
+    private static volatile long head;                       // Próxima posição a escrever (thread de escrita)
+    private static final LongAdder dropped = new LongAdder(); // Mensagens descartadas com o buffer cheio
+
+    private static volatile Level level = Level.valueOf(
+            System.getProperty("qaquiz.log.level", "info").toUpperCase(Locale.ROOT));
+    private static volatile int answerSampling = Integer.getInteger("qaquiz.log.answers", 1);
+
+    static {
+        Thread t = new Thread(Log::writeLoop, "qaquiz-log");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush)); // Não perde o fim do log ao encerrar
+    }
+
+    private Log() {}
+
+    // ---------- Registro (caminho quente) ----------
+    static void info(String fmt, Object... args) {
+        if (level.compareTo(Level.INFO) >= 0) publish(new Event(false, fmt, args));
+    }
+
+    static void error(String fmt, Object... args) {
+        publish(new Event(true, fmt, args)); // Erros sempre aparecem (em System.err)
+    }
+
+    // Decide se esta resposta entra no log (amostragem de 1 a cada N)
+    static boolean sampleAnswer() {
+        int n = answerSampling;
+        if (n <= 0 || level.compareTo(Level.INFO) < 0) return false;
+        return n == 1 || ThreadLocalRandom.current().nextInt(n) == 0;
+    }
+
+    private static void publish(Event e) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= CAPACITY) { dropped.increment(); return; } // Buffer cheio: descarta
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.set((int) t & (CAPACITY - 1), e);
+    }
+
+    // ---------- Configuração ----------
+    static void setLevel(Level l) { level = l; }
+
+    static void setAnswerSampling(int n) { answerSampling = n; }
+
+    static String status() {
+        return String.format("nível=%s, respostas=%s, descartadas=%d, pendentes=%d/%d",
+                level.name().toLowerCase(Locale.ROOT),
+                answerSampling <= 0 ? "off" : "1/" + answerSampling,
+                dropped.sum(), tail.get() - head, CAPACITY);
+    }
+
+    // Espera a thread de escrita alcançar o que já foi registrado (no máximo ~1 s)
+    static void flush() {
+        long target = tail.get();
+        for (int i = 0; i < 500 && head < target; i++) LockSupport.parkNanos(FLUSH_INTERVAL_NS);
+    }
+
+    // ---------- Thread de escrita ----------
+    private static void writeLoop() {
+        StringBuilder out = new StringBuilder(64 * 1024);
+        StringBuilder err = new StringBuilder();
+        long reportedDrops = 0;
+        while (true) {
+            long h = head;
+            Event e;
+            // Consome em ordem até a primeira posição ainda não publicada
+            while ((e = ring.get((int) h & (CAPACITY - 1))) != null) {
+                ring.set((int) h & (CAPACITY - 1), null);
+                StringBuilder sb = e.err ? err : out;
+                format(sb, e);
+                h++;
+                if (out.length() >= 64 * 1024) break; // Lote grande o bastante: escreve já
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                out.append("[LOG] ").append(drops - reportedDrops).append(" mensagens descartadas (buffer cheio)\n");
+                reportedDrops = drops;
+            }
+            write(System.err, err);
+            write(System.out, out);
+            boolean idle = h == head;
+            head = h;
+            if (idle) LockSupport.parkNanos(FLUSH_INTERVAL_NS);
+        }
+    }
+
+    private static void format(StringBuilder sb, Event e) {
+        try {
+            sb.append(e.args.length == 0 ? e.fmt : String.format(e.fmt, e.args));
+        } catch (RuntimeException bad) {
+            sb.append(e.fmt);
+        }
+        sb.append('\n');
+    }
+
+    private static void write(PrintStream ps, StringBuilder sb) {
+        if (sb.length() == 0) return;
+        ps.print(sb); // Uma escrita por lote
+        ps.flush();
+        sb.setLength(0);
+    }
+}
@@ -0,0 +1,138 @@
+package server;
+
+import com.sun.net.httpserver.HttpServer; // Endpoint HTTP opcional (JDK)
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Métricas do servidor: contadores listrados (LongAdder) e histogramas de baldes fixos, baratos o bastante
+// para o caminho quente. Lidas pelo comando STATS e, opcionalmente, por HTTP em formato texto do Prometheus
+// (GET http://127.0.0.1:<porta>/metrics, com -Dqaquiz.metrics.port=<porta>).
+final class Metrics {
+    // Conexões e sessões
+    final LongAdder connections = new LongAdder();     // Conexões aceitas
+    final LongAdder sessionsStarted = new LongAdder(); // Partidas iniciadas
+    final LongAdder sessionsActive = new LongAdder();  // Partidas em andamento
+    final LongAdder answers = new LongAdder();         // Respostas recebidas
+    final LongAdder answersCorrect = new LongAdder();
+    final LongAdder bytesSent = new LongAdder();       // Bytes enviados a jogadores e peers
+    final LongAdder bytesReceived = new LongAdder();
+
+    // Sincronização
+    final LongAdder exportsServed = new LongAdder();     // EXPORT/FETCH atendidos
+    final LongAdder exportQuestions = new LongAdder();   // Perguntas enviadas a peers
+    final LongAdder pulls = new LongAdder();             // PULLs feitos por este servidor
+    final LongAdder pullErrors = new LongAdder();
+    final LongAdder pullImported = new LongAdder();      // Perguntas novas vindas de PULL
+    final LongAdder pullBytes = new LongAdder();         // Bytes trafegados nos PULLs (enviados + recebidos)
+
+    // Importação (IMPORT de arquivo ou pela rede)
+    final LongAdder imports = new LongAdder();           // Importações concluídas
+    final LongAdder importLines = new LongAdder();       // Linhas de pergunta lidas
+    final LongAdder importAdded = new LongAdder();       // Perguntas novas
+    final LongAdder importInvalid = new LongAdder();     // Linhas descartadas na validação
+
+    final Histogram setupLatency = new Histogram();   // Aceite → primeira pergunta enviada
+    final Histogram answerRtt = new Histogram();      // Pergunta enviada → resposta recebida
+    final Histogram answerService = new Histogram();  // Resposta recebida → resultado/próxima pergunta enviados
+    final Histogram exportDuration = new Histogram(); // Primeiro → último lote de um EXPORT/FETCH
+    final Histogram pullDuration = new Histogram();   // PULL completo (conexão → último lote integrado)
+    final Histogram importDuration = new Histogram(); // Importação completa (até o fsync do último lote)
+
+    private final LongSupplier questionCount; // Tamanho do banco (gauge)
+    private final LongSupplier idCollisions;  // Perguntas descartadas por colisão de id
+    private final long startedAt = System.nanoTime();
+    private long lastStatsAt = startedAt, lastStatsAnswers; // Para a taxa "desde o último STATS"
+
+    Metrics(LongSupplier questionCount, LongSupplier idCollisions) {
+        this.questionCount = questionCount;
+        this.idCollisions = idCollisions;
+    }
+
+    // ---------- Console ----------
+    synchronized String stats() {
+        long now = System.nanoTime(), total = answers.sum();
+        double secs = Math.max(1e-9, (now - lastStatsAt) / 1e9);
+        double rate = (total - lastStatsAnswers) / secs;
+        lastStatsAt = now;
+        lastStatsAnswers = total;
+        return String.format(Locale.ROOT, String.join("%n",
+                        "Uptime: %ds | Perguntas no banco: %d (colisões de id: %d)",
+                        "Sessões: ativas=%d, iniciadas=%d, conexões=%d",
+                        "Respostas: %d (corretas %d), %.1f/s desde o último STATS",
+                        "  RTT pergunta → resposta: %s",
+                        "  Serviço da resposta:     %s",
+                        "  Setup (aceite → 1ª):     %s",
+                        "Peers atendidos: %d (%d perguntas) duração: %s",
+                        "PULL: %d (%d erros, %d importadas, %d bytes) duração: %s",
+                        "IMPORT: %d (%d linhas, %d novas, %d inválidas) duração: %s",
+                        "Bytes: enviados=%d, recebidos=%d | Log: %s"),
+                (now - startedAt) / 1_000_000_000L, questionCount.getAsLong(), idCollisions.getAsLong(),
+                sessionsActive.sum(), sessionsStarted.sum(), connections.sum(),
+                total, answersCorrect.sum(), rate,
+                answerRtt.summary(), answerService.summary(), setupLatency.summary(),
+                exportsServed.sum(), exportQuestions.sum(), exportDuration.summary(),
+                pulls.sum(), pullErrors.sum(), pullImported.sum(), pullBytes.sum(), pullDuration.summary(),
+                imports.sum(), importLines.sum(), importAdded.sum(), importInvalid.sum(), importDuration.summary(),
+                bytesSent.sum(), bytesReceived.sum(), Log.status());
+    }
+
+    // ---------- Prometheus ----------
+    String prometheus() {
+        StringBuilder sb = new StringBuilder(8 * 1024);
+        gauge(sb, "qaquiz_questions", "Perguntas no banco", questionCount.getAsLong());
+        gauge(sb, "qaquiz_sessions_active", "Partidas em andamento", sessionsActive.sum());
+        counter(sb, "qaquiz_id_collisions_total", "Perguntas descartadas por colisão de id", idCollisions.getAsLong());
+        counter(sb, "qaquiz_connections_total", "Conexões aceitas", connections.sum());
+        counter(sb, "qaquiz_sessions_total", "Partidas iniciadas", sessionsStarted.sum());
+        counter(sb, "qaquiz_answers_total", "Respostas recebidas", answers.sum());
+        counter(sb, "qaquiz_answers_correct_total", "Respostas corretas", answersCorrect.sum());
+        counter(sb, "qaquiz_bytes_sent_total", "Bytes enviados", bytesSent.sum());
+        counter(sb, "qaquiz_bytes_received_total", "Bytes recebidos", bytesReceived.sum());
+        counter(sb, "qaquiz_exports_total", "EXPORT/FETCH atendidos", exportsServed.sum());
+        counter(sb, "qaquiz_export_questions_total", "Perguntas enviadas a peers", exportQuestions.sum());
+        counter(sb, "qaquiz_pulls_total", "PULLs feitos", pulls.sum());
+        counter(sb, "qaquiz_pull_errors_total", "PULLs com erro", pullErrors.sum());
+        counter(sb, "qaquiz_pull_imported_total", "Perguntas importadas por PULL", pullImported.sum());
+        counter(sb, "qaquiz_pull_bytes_total", "Bytes trafegados nos PULLs", pullBytes.sum());
+        counter(sb, "qaquiz_imports_total", "Importações concluídas", imports.sum());
+        counter(sb, "qaquiz_import_lines_total", "Linhas lidas em importações", importLines.sum());
+        counter(sb, "qaquiz_import_added_total", "Perguntas novas vindas de importações", importAdded.sum());
+        counter(sb, "qaquiz_import_invalid_total", "Linhas inválidas em importações", importInvalid.sum());
+        setupLatency.prometheus(sb, "qaquiz_setup_seconds", "Aceite até a primeira pergunta");
+        answerRtt.prometheus(sb, "qaquiz_answer_rtt_seconds", "Pergunta enviada até a resposta");
+        answerService.prometheus(sb, "qaquiz_answer_service_seconds", "Resposta recebida até o envio da réplica");
+        exportDuration.prometheus(sb, "qaquiz_export_seconds", "Duração de EXPORT/FETCH atendidos");
+        pullDuration.prometheus(sb, "qaquiz_pull_seconds", "Duração dos PULLs");
+        importDuration.prometheus(sb, "qaquiz_import_seconds", "Duração das importações");
+        return sb.toString();
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long v) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n").append(name).append(' ').append(v).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long v) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n").append(name).append(' ').append(v).append('\n');
+    }
+
+    // Servidor HTTP local com GET /metrics (uma thread do próprio HttpServer)
+    void startHttp(int port) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        http.createContext("/metrics", ex -> {
+            byte[] body = prometheus().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(body); }
+        });
+        http.start();
+        Log.info("[METRICS] http://127.0.0.1:%d/metrics", port);
+    }
+}
@@ -0,0 +1,360 @@
+package server;
+
+import protocol.*;      // Mensagens e codecs (binário e serializado)
+import java.io.*;                            // Object streams
+import java.net.*;                           // Endereços
+import java.nio.ByteBuffer;                  // Buffers de leitura/escrita
+import java.nio.channels.*;                  // Seletor e canais não bloqueantes
+import java.util.*;                          // Coleções utilitárias
+import java.util.concurrent.*;               // Fila e pool para o EXPORT
+
+// Motor NIO: um único seletor atende todas as conexões. Sessões ociosas ocupam apenas
+// alguns buffers, nenhuma thread. Fala os mesmos protocolos do modo bloqueante.
+final class NioEngine {
+    private static final int IDLE_OUT_CAPACITY = 512; // Buffer de saída mantido por sessão ociosa
+    static final int PEER_THREADS = Math.max(1, Integer.getInteger("qaquiz.nio.peerThreads",
+            Runtime.getRuntime().availableProcessors()));  // Workers para pedidos de peers e IMPORT
+    static final int PEER_QUEUE = Integer.getInteger("qaquiz.nio.peerQueue", 1024); // Pedidos à espera de um worker
+
+    private final QAQuizServer server;
+    private final String host;
+    private final int port;
+    private final Selector selector;
+    private final ByteBuffer readBuf = ByteBuffer.allocate(64 * 1024);     // Compartilhado: só a thread do seletor lê
+    private final ArrayDeque<Conn> sniffing = new ArrayDeque<>();          // Conexões na janela de detecção (ordem de prazo)
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>(); // Tarefas devolvidas à thread do seletor
+    private final ExecutorService peerWork;                                // Respostas a peers fora do seletor (pool limitada)
+
+    NioEngine(QAQuizServer server, String host, int port) throws IOException {
+        this.server = server;
+        this.host = host;
+        this.port = port;
+        this.selector = Selector.open();
+        // Threads e fila limitadas: muitos peers ao mesmo tempo esperam na fila; com a fila cheia o pedido
+        // é recusado (RejectedExecutionException) e só aquela conexão é fechada
+        this.peerWork = new ThreadPoolExecutor(PEER_THREADS, PEER_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PEER_QUEUE), r -> {
+            Thread t = new Thread(r, "qaquiz-nio-peer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Loop do seletor: aceita, lê, escreve e expira as janelas de detecção de peers. Falhas de uma conexão
+    // (inclusive Error, como um OutOfMemoryError provocado por um frame malicioso) fecham só aquela conexão.
+    void run() throws IOException {
+        try (ServerSocketChannel ssc = ServerSocketChannel.open()) {
+            ssc.bind(new InetSocketAddress(port), QAQuizServer.ACCEPT_BACKLOG);
+            ssc.configureBlocking(false);
+            ssc.register(selector, SelectionKey.OP_ACCEPT);
+            Log.info("[SERVE] Escutando em %s:%d (engine=nio)", host, port);
+
+            while (true) {
+                selector.select(selectTimeout());
+                Runnable task;
+                while ((task = pending.poll()) != null) task.run(); // Respostas a peers prontas
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) { accept(ssc); continue; }
+                    Conn c = (Conn) key.attachment();
+                    try {
+                        if (key.isReadable()) c.onReadable();
+                        if (key.isValid() && key.isWritable()) c.write();
+                    } catch (Throwable e) {
+                        server.logDisconnect(c.who, e);
+                        c.close();
+                    }
+                }
+                expireSniffs();
+            }
+        }
+    }
+
+    // Espera até o próximo prazo de detecção (0 = sem prazo, bloqueia até haver evento)
+    private long selectTimeout() {
+        Conn head = sniffing.peek();
+        if (head == null) return 0;
+        return Math.max(1, (head.deadline - System.nanoTime()) / 1_000_000);
+    }
+
+    private void accept(ServerSocketChannel ssc) throws IOException {
+        SocketChannel ch;
+        while ((ch = ssc.accept()) != null) { // Esvazia a fila de conexões pendentes
+            try {
+                ch.configureBlocking(false);
+                Conn c = new Conn(ch);
+                server.metrics.connections.increment();
+                Log.info("[CONNECT] Conexão de %s", c.who);
+            } catch (IOException e) { // Cliente que desistiu entre o accept e o registro
+                Log.error("[ERRO] accept: %s", e.getMessage());
+                ch.close();
+            }
+        }
+    }
+
+    // Cliente antigo que não mandou nada dentro da janela é tratado como jogador (mesma regra do modo bloqueante)
+    private void expireSniffs() {
+        long now = System.nanoTime();
+        Conn c;
+        while ((c = sniffing.peek()) != null && (c.phase != Phase.SNIFF || c.deadline - now <= 0)) {
+            sniffing.poll();
+            if (c.phase != Phase.SNIFF || !c.ch.isOpen()) continue; // Já decidiu (ou fechou) antes do prazo
+            try {
+                c.startGame(null);
+                c.flush();
+            } catch (Throwable e) {
+                server.logDisconnect(c.who, e);
+                c.close();
+            }
+        }
+    }
+
+    // NEGOTIATE → HELLO (binário) ou SNIFF (serializado) → PLAYER / PEER (⇄ WORKER) → CLOSING
+    private enum Phase { NEGOTIATE, HELLO, SNIFF, PLAYER, PEER, WORKER, CLOSING }
+
+    // Estado de uma conexão no seletor
+    private final class Conn {
+        final SocketChannel ch;
+        final SelectionKey key;
+        final SocketAddress who;
+        final FrameBuffer out = new FrameBuffer(IDLE_OUT_CAPACITY); // Saída pendente (frames ou bytes serializados)
+        ByteBuffer partial;                // Sobra de um frame incompleto (null quando não há)
+        int maxFrame = Wire.MAX_CONTROL_FRAME; // Limite por frame: Wire.MAX_FRAME só depois do HELLO de peer
+        ObjectOutputStream oos;            // Protocolo serializado: escreve em out
+        SerialStringDecoder legacyIn;      // Protocolo serializado: mensagens recebidas
+        Phase phase = Phase.NEGOTIATE;
+        final long acceptedAt = System.nanoTime(); // Início do setup da conexão
+        boolean setupPending;                      // Partida começou e a 1ª pergunta ainda não saiu inteira
+        long deadline;     // Fim da janela de detecção (System.nanoTime)
+        GameSession game;  // Partida, quando a conexão é de um jogador
+        ExportStream stream; // Resposta em lotes em andamento (peer no protocolo binário)
+        int credit;          // Lotes que o peer liberou e ainda não enviamos
+        Importer.Session imports; // IMPORT em andamento (só o worker mexe)
+
+        Conn(SocketChannel ch) throws IOException {
+            this.ch = ch;
+            this.who = ch.getRemoteAddress();
+            this.key = ch.register(selector, SelectionKey.OP_READ, this);
+        }
+
+        void send(Msg m) throws IOException {
+            if (oos == null) {
+                out.put(m); // Frame binário direto no buffer de saída
+                return;
+            }
+            oos.writeObject(ObjectChannel.toObject(m));
+            if (m instanceof Msg.Ask || m instanceof Msg.Export) oos.reset(); // Sem handles segurando Questions
+        }
+
+        void onReadable() throws IOException {
+            readBuf.clear();
+            int n = ch.read(readBuf);
+            if (n < 0) throw new EOFException(); // Mesmo efeito do readObject no fim do stream
+            server.metrics.bytesReceived.add(n);
+            readBuf.flip();
+
+            // Decodifica direto do buffer compartilhado; só copia a sobra de um frame incompleto
+            ByteBuffer src = readBuf;
+            if (partial != null) {
+                partial = ensure(partial, readBuf.remaining());
+                partial.put(readBuf).flip();
+                src = partial;
+            }
+            process(src);
+        }
+
+        private void process(ByteBuffer src) throws IOException {
+            pump(src);
+            if (!src.hasRemaining()) {
+                partial = null;
+            } else if (src == partial && (partial.capacity() <= Wire.MAX_CONTROL_FRAME
+                    || src.remaining() > Wire.MAX_CONTROL_FRAME / 2)) {
+                partial.compact(); // Frame grande ainda chegando: mantém o buffer
+            } else {
+                ByteBuffer rest = ensure(null, src.remaining()); // Sobra pequena: solta o buffer grande
+                rest.put(src);
+                partial = rest;
+            }
+            if (phase != Phase.WORKER) flush(); // Com um worker ativo o buffer de saída pertence a ele
+        }
+
+        // Processa todas as mensagens completas em src
+        private void pump(ByteBuffer src) throws IOException {
+            while (phase != Phase.CLOSING && phase != Phase.WORKER) {
+                if (phase == Phase.NEGOTIATE) {
+                    if (src.remaining() < Wire.PREAMBLE_SIZE) return;
+                    byte[] first = new byte[Wire.PREAMBLE_SIZE];
+                    src.get(first);
+                    negotiate(first);
+                    continue;
+                }
+                if (legacyIn != null) {
+                    legacyIn.feed(src);
+                    Object obj = legacyIn.next();
+                    if (obj == null) return;
+                    onMessage(ObjectChannel.fromObject(obj));
+                } else {
+                    Msg m = Wire.decode(src, maxFrame);
+                    if (m == null) return;
+                    onMessage(m);
+                }
+            }
+        }
+
+        // Escolhe o protocolo pelos primeiros bytes, responde e envia o banner
+        private void negotiate(byte[] first) throws IOException {
+            if (Wire.preambleVersion(first) > 0) {
+                out.write(Wire.preamble(Wire.VERSION)); // A versão que falamos (o cliente confere)
+            } else {
+                legacyIn = new SerialStringDecoder();
+                legacyIn.feed(ByteBuffer.wrap(first)); // Cabeçalho do stream do cliente (validado pelo decoder)
+                oos = new ObjectOutputStream(out);     // Cabeçalho do nosso stream vai junto com o banner
+            }
+            send(new Msg.Banner(QAQuizServer.BANNER)); // Envia banner de identificação do servidor
+            if (oos == null) {
+                phase = Phase.HELLO; // Cliente binário declara o papel no HELLO (já vem junto do preâmbulo)
+                return;
+            }
+            phase = Phase.SNIFF; // Cliente antigo: janela para detectar um peer pedindo EXPORT
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QAQuizServer.SNIFF_TIMEOUT_MS);
+            sniffing.add(this);
+        }
+
+        private void onMessage(Msg msg) throws IOException {
+            switch (phase) {
+                case HELLO, SNIFF -> {
+                    // Primeira mensagem decide o papel; sem HELLO, qualquer coisa que não seja EXPORT é descartada
+                    if (QAQuizServer.roleOf(msg) == Msg.Role.PLAYER) startGame(msg);
+                    else if (msg instanceof Msg.Hello) { // Pedido vem na próxima mensagem
+                        phase = Phase.PEER;
+                        maxFrame = Wire.MAX_FRAME;
+                    }
+                    else onPeerMessage(msg);
+                }
+                case PEER -> onPeerMessage(msg);
+                default -> {
+                    if (!server.onPlayerMessage(game, msg, this::send, who)) phase = Phase.CLOSING;
+                }
+            }
+        }
+
+        void startGame(Msg first) throws IOException {
+            phase = Phase.PLAYER;
+            game = server.newGame(first, who);
+            if (server.startGame(game, this::send)) setupPending = true; // Medido quando write() esvaziar a saída
+            else phase = Phase.CLOSING; // Sem perguntas
+        }
+
+        // Lotes são produzidos aqui mesmo, na medida dos créditos: cada evento faz trabalho limitado
+        private void onPeerMessage(Msg msg) throws IOException {
+            if (msg instanceof Msg.Credit c) {
+                credit += c.batches();
+            } else if (stream == null && oos == null && (stream = server.openPeerStream(msg, who)) != null) {
+                credit = 0; // Espera os créditos iniciais do receptor
+            } else {
+                replyToPeer(msg);
+                return;
+            }
+            while (stream != null && credit > 0) {
+                send(stream.next());
+                credit--;
+                if (stream.done()) {
+                    server.logPeerSent(stream, who);
+                    stream = null;
+                }
+            }
+        }
+
+        // Respostas de mensagem única (resumos; EXPORT completo de peer antigo) e pedaços de IMPORT rodam
+        // num worker e devolvem a escrita ao seletor. EXPORT e o fim do IMPORT encerram a conexão; os demais não.
+        private void replyToPeer(Msg req) throws IOException {
+            phase = Phase.WORKER;
+            key.interestOps(0); // Até o worker terminar, o seletor não mexe nesta conexão
+            try {
+                peerWork.execute(() -> {
+                    try {
+                        Msg reply = req instanceof Msg.Import chunk && oos == null ? importChunk(chunk) : server.peerReply(req, who);
+                        boolean last = QAQuizServer.isExportRequest(req) || reply instanceof Msg.ImportResult;
+                        if (reply != null) send(reply);
+                        if (oos != null) oos.flush();
+                        runOnSelector(() -> {
+                            if (!ch.isOpen()) return; // Peer desistiu durante a codificação
+                            phase = (last || reply == null) ? Phase.CLOSING : Phase.PEER;
+                            try {
+                                if (partial != null) { // Pedidos que chegaram junto com este
+                                    partial.flip();
+                                    process(partial);
+                                } else {
+                                    write();
+                                }
+                            } catch (Throwable e) {
+                                server.logDisconnect(who, e);
+                                close();
+                            }
+                            if (reply != null) server.logPeerSent(reply, who);
+                        });
+                    } catch (Throwable e) { // Sem isto a conexão ficaria em WORKER para sempre
+                        runOnSelector(() -> { server.logDisconnect(who, e); close(); });
+                    }
+                });
+            } catch (RejectedExecutionException e) { // Fila cheia: só esta conexão é recusada
+                throw new IOException("servidor ocupado: fila de pedidos de peers cheia");
+            }
+        }
+
+        // Pedaço de IMPORT (no worker): o primeiro abre a sessão
+        private Msg importChunk(Msg.Import chunk) {
+            if (imports == null && (imports = server.openImport(who)) == null) return QAQuizServer.importRefused();
+            return server.importChunk(imports, chunk, who);
+        }
+
+        void flush() throws IOException {
+            if (oos != null) oos.flush();
+            write();
+        }
+
+        void write() throws IOException {
+            // O OP_WRITE do mesmo select pode chegar depois de onReadable ter entregue a conexão a um worker:
+            // o buffer de saída é dele até runOnSelector, que escreve o que ficou
+            if (phase == Phase.WORKER) return;
+            int before = out.size();
+            int left = out.drainTo(ch);
+            server.metrics.bytesSent.add(before - left);
+            if (left == 0 && setupPending) { // Primeira pergunta entregue ao socket
+                setupPending = false;
+                server.metrics.setupLatency.recordSince(acceptedAt);
+            }
+            if (left > 0) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE); // Socket cheio: espera OP_WRITE
+            } else if (phase == Phase.CLOSING) {
+                close(); // Tudo entregue (END/BYE ou EXPORT): encerra a conexão
+            } else {
+                out.shrink(IDLE_OUT_CAPACITY);
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            key.cancel();
+            try { ch.close(); } catch (IOException ignore) {}
+            if (game != null) server.endGame(game);
+        }
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buf, int extra) {
+        if (buf == null) return ByteBuffer.allocate(Math.max(256, extra));
+        if (buf.remaining() >= extra) return buf;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + extra));
+        buf.flip();
+        return bigger.put(buf);
+    }
+
+    private void runOnSelector(Runnable task) {
+        pending.add(task);
+        selector.wakeup();
+    }
+}
@@ -1,63 +1,94 @@
 package server;
 
+import protocol.*;      // Mensagens e protocolos de fio (binário e serializado)
 import schema.Question; // Modelo de pergunta serializável
 
 import java.io.*;                           // E/S e Object streams
 import java.net.*;                          // Sockets e ServerSocket
-import java.nio.charset.StandardCharsets;   // Charset para ler/gravar arquivos
+import java.nio.ByteBuffer;                 // Pedaços de IMPORT recebidos pela rede
 import java.nio.file.*;                     // Manipulação de arquivos/paths
 import java.util.*;                         // Coleções utilitárias
-import java.util.concurrent.*;              // Estruturas concorrentes (thread-safe)
+import java.util.concurrent.*;              // Estruturas concorrentes (thread-safe) e fábricas de threads
 
 // Servidor do Quiz: gerencia perguntas, aceita clientes, joga e sincroniza com peers.
-public class QAQuizServer {
+public class QAQuizServer implements Closeable {
     private final String host;   // Interface/endereço (apenas para log)
     private final int port;      // Porta de escuta
     private final Path dataFile; // Caminho do arquivo PSV de persistência
+    private final ConnectionEngine engine; // Modo de atendimento das conexões
+
+    static final String BANNER = "BANNER:QAQuizServer"; // Identificação enviada a cada conexão
+    static final int SNIFF_TIMEOUT_MS = 80;   // Janela para detectar um peer antigo (sem HELLO) pedindo EXPORT
+    static final int HANDSHAKE_TIMEOUT_MS = 10_000; // Prazo para o cliente mandar preâmbulo e HELLO
+    static final int ACCEPT_BACKLOG = 1024;   // Fila de conexões pendentes (rajadas de jogadores)
+    static final boolean IMPORT_REMOTE = Boolean.getBoolean("qaquiz.import.remote"); // IMPORT pela rede além de localhost
 
     // Estruturas principais em memória:
-    private final Map<String, Question> questions = new ConcurrentHashMap<>(); // Perguntas por id
+    private final QuestionBank questions = new QuestionBank();                 // Perguntas por id (+ resumos para sync)
     private final Set<String> peers = ConcurrentHashMap.newKeySet();           // Conjunto de peers "host:port"
-    private final Random rng = new Random();                                    // RNG para embaralhar questões
+    final Metrics metrics = new Metrics(questions::size, questions::collisions);                       // Contadores e histogramas (STATS, /metrics)
+    private final Journal journal;                                              // Registros append-only + snapshot
+    private final Replicator replicator;                                        // PULL periódico de todos os peers
+    private final Importer importer;                                            // IMPORT em lotes (arquivo ou rede)
+    private final Thread shutdownHook;                                          // Grava o journal ao encerrar o processo
 
     // Construtor: define parâmetros e carrega do disco (ou cria seeds)
     public QAQuizServer(String host, int port, String dataFile) {
+        this(host, port, dataFile, ConnectionEngine.VIRTUAL);
+    }
+
+    public QAQuizServer(String host, int port, String dataFile, ConnectionEngine engine) {
         this.host = host;
         this.port = port;
         this.dataFile = Paths.get(dataFile);
+        this.engine = engine;
+        this.journal = new Journal(this.dataFile, this::writeSnapshot);
+        this.importer = new Importer(questions, journal, metrics);
         loadOrSeed(); // Carrega perguntas/peers do arquivo, ou cria seeds iniciais
+        try {
+            int n = journal.replay(questions::add, peers::add); // Mudanças posteriores ao último snapshot
+            if (n > 0) Log.info("[BOOT] Journal: %d registros reaplicados (total %d perguntas)", n, questions.size());
+            journal.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("journal: " + e.getMessage(), e);
+        }
+        this.shutdownHook = new Thread(journal::close); // Grava o que ainda está na fila
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        this.replicator = new Replicator(peers, port, (h, p) -> pull(h, p, true));
+    }
+
+    // Para a replicação e grava o journal pendente. Não fecha as conexões nem o socket de escuta:
+    // serve para descartar um servidor que não chegou a atender (ex.: benchmarks e testes).
+    @Override
+    public void close() {
+        replicator.close();
+        journal.close();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook); // Sem ele o banco inteiro continuaria alcançável
+        } catch (IllegalStateException ignore) {} // Processo já encerrando: o hook roda de qualquer jeito
     }
 
     // ---------- Persistência ----------
-    // Salva peers e perguntas no arquivo PSV.
-    private synchronized void save() {
-        try (BufferedWriter w = Files.newBufferedWriter(dataFile, StandardCharsets.UTF_8)) {
-            w.write("#PEERS " + String.join(",", peers)); w.newLine(); // Primeira linha: peers
-            for (Question q : questions.values()) {
-                w.write(q.toPSV()); w.newLine(); // Demais linhas: perguntas em PSV
-            }
-        } catch (IOException e) { System.err.println("[ERRO] save: " + e.getMessage()); }
+    // Snapshot completo em PSV: peers na primeira linha, depois as perguntas.
+    // Mudanças do dia a dia vão para o journal; o snapshot só é regravado na compactação.
+    private void writeSnapshot(BufferedWriter w) throws IOException {
+        w.write("#PEERS " + String.join(",", peers)); w.newLine(); // Primeira linha: peers
+        for (Question q : questions.values()) {
+            w.write(q.toPSV()); w.newLine(); // Demais linhas: perguntas em PSV
+        }
     }
 
     // Carrega do arquivo, se existir. Caso contrário, cria perguntas seeds e salva.
     private void loadOrSeed() {
         if (Files.exists(dataFile)) {
-            try (BufferedReader r = Files.newBufferedReader(dataFile, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = r.readLine()) != null) {
-                    if (line.startsWith("#PEERS ")) {
-                        // Linha especial com peers → "#PEERS host1:port1,host2:port2,..."
-                        String tail = line.substring(7).trim();
-                        if (!tail.isEmpty()) peers.addAll(Arrays.asList(tail.split(",")));
-                        continue; // Vai para próxima linha
-                    }
-                    if (line.isBlank()) continue;   // Ignora linhas em branco
-                    Question q = Question.fromPSV(line); // Reconstrói a pergunta
-                    questions.putIfAbsent(q.id, q);      // Evita duplicatas (pela chave id)
-                }
-                System.out.printf("[BOOT] Carregado %d perguntas, %d peers%n", questions.size(), peers.size());
+            try {
+                // Arquivo mapeado em memória e analisado em paralelo, por partes alinhadas a fim de linha
+                BankLoader.Result r = BankLoader.load(dataFile, questions, peers);
+                double secs = r.nanos() / 1e9;
+                Log.info("[BOOT] Carregado %d perguntas, %d peers em %.0f ms (%.0f registros/s, %d partes)",
+                        questions.size(), peers.size(), secs * 1000, r.records() / Math.max(secs, 1e-9), r.chunks());
                 return; // Já carregou tudo, não precisa seed
-            } catch (Exception e) { System.err.println("[ERRO] load: " + e.getMessage()); }
+            } catch (Exception e) { Log.error("[ERRO] load: %s", e.getMessage()); }
         }
 
         // ----- Seeds (perguntas padrão quando não há arquivo) -----
@@ -82,13 +113,15 @@ public class QAQuizServer {
         addSeed(new Question("Hardware", "Qual componente é considerado a 'unidade central de processamento'?",
                 List.of("Memória RAM", "CPU", "HD", "GPU"), 1));
 
-        save(); // Persiste as seeds para o arquivo
-        System.out.println("[BOOT] Seeds criados. Total perguntas: " + questions.size());
+        try {
+            journal.writeSnapshot(); // Persiste as seeds para o arquivo
+        } catch (IOException e) { Log.error("[ERRO] save: %s", e.getMessage()); }
+        Log.info("[BOOT] Seeds criados. Total perguntas: %d", questions.size());
     }
 
     // Adiciona uma pergunta seed evitando sobrescrever id existente
     private void addSeed(Question q) {
-        questions.putIfAbsent(q.id, q);
+        questions.add(q);
     }
 
     // ---------- Console admin ----------
@@ -107,20 +140,53 @@ public class QAQuizServer {
                         case "ADD_PEER" -> {
                             // ADD_PEER <host> <port>
                             if (p.length == 3) {
-                                peers.add(p[1] + ":" + p[2]); // Adiciona ao set
-                                save();                       // Persiste
-                                System.out.printf("[ADMIN] Peer adicionado: %s:%s%n", p[1], p[2]);
+                                try {
+                                    String peer = Journal.peer(p[1] + ":" + p[2]);
+                                    if (peers.add(peer)) journal.addPeer(peer).join(); // Adiciona e espera o fsync
+                                    Log.info("[ADMIN] Peer adicionado: %s:%s", p[1], p[2]);
+                                } catch (IllegalArgumentException e) {
+                                    System.out.println("Uso: ADD_PEER <host> <porta 1-65535>");
+                                } catch (CompletionException e) { // Journal não gravou: desfaz para não sumir num reinício
+                                    peers.remove(p[1] + ":" + p[2]);
+                                    Log.error("[ADMIN] Peer %s:%s NÃO adicionado: falha ao gravar no journal (%s)", p[1], p[2],
+                                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                                }
                             }
                         }
                         case "PULL" -> {
                             // PULL <host> <port> → importa perguntas do peer informado
                             if (p.length == 3) {
                                 int imp = pullFromPeer(p[1], Integer.parseInt(p[2]));
-                                System.out.printf("[ADMIN] Importados %d perguntas de %s:%s%n", imp, p[1], p[2]);
+                                Log.info("[ADMIN] Importados %d perguntas de %s:%s", imp, p[1], p[2]);
                             }
                         }
+                        case "IMPORT" -> {
+                            // IMPORT <arquivo> → valida e integra as perguntas de um PSV, sem reiniciar o servidor
+                            if (p.length >= 2) importFile(line.trim().substring(p[0].length()).trim());
+                        }
+                        case "SYNC" -> {
+                            // SYNC [now] → situação da replicação por peer; "now" antecipa a próxima rodada
+                            if (p.length > 1 && p[1].equalsIgnoreCase("now")) replicator.syncNow();
+                            System.out.println(replicator.status());
+                        }
                         case "COUNT" -> System.out.println("Perguntas: " + questions.size()); // Contagem
-                        default -> System.out.println("Comandos: PEERS, ADD_PEER h p, PULL h p, COUNT");
+                        case "SETUP" -> System.out.println("Setup (aceite → 1ª pergunta): " + metrics.setupLatency.summary());
+                        case "STATS" -> System.out.println(metrics.stats());
+                        case "TOPICS" -> questions.topicCounts() // Contagem por tópico (pelo índice)
+                                .forEach((topic, n) -> System.out.printf("  %-30s %d%n", topic, n));
+                        case "LOG" -> {
+                            // LOG [level error|info] [answers N]
+                            try {
+                                for (int i = 1; i + 1 < p.length; i += 2) {
+                                    if (p[i].equalsIgnoreCase("level")) Log.setLevel(Log.Level.valueOf(p[i + 1].toUpperCase()));
+                                    else if (p[i].equalsIgnoreCase("answers")) Log.setAnswerSampling(Integer.parseInt(p[i + 1]));
+                                }
+                                System.out.println("Log: " + Log.status());
+                            } catch (IllegalArgumentException e) {
+                                System.out.println("Uso: LOG [level error|info] [answers N]");
+                            }
+                        }
+                        default -> System.out.println("Comandos: PEERS, ADD_PEER h p, PULL h p, SYNC [now], IMPORT arquivo, COUNT, TOPICS, SETUP, STATS, LOG");
                     }
                 }
             } catch (Exception ignore) {} // Fecha silenciosamente se der erro/EOF
@@ -129,148 +195,470 @@ public class QAQuizServer {
     }
 
     // ---------- Sincronização ----------
-    // Conecta a um peer e solicita EXPORT (todas as perguntas). Retorna quantas foram importadas.
-    private int pullFromPeer(String host, int port) {
-        try (Socket s = new Socket(host, port)) {
-            System.out.printf("[SYNC] Conectando ao peer %s:%d...%n", host, port);
+    // Conecta a um peer e importa as perguntas que faltam aqui. Retorna quantas foram importadas.
+    // Com peers novos compara resumos (grupos → folhas) e só transfere as folhas que diferem;
+    // com peers antigos (serialização Java) cai para o EXPORT completo.
+    int pullFromPeer(String host, int port) {
+        try {
+            return pull(host, port, false);
+        } catch (Exception e) {
+            // Log amigável em caso de falha de rede/serialização
+            Log.info("[SYNC-ERRO] Falha ao puxar de %s:%d → %s", host, port, e.getMessage());
+        }
+        return 0; // Nada importado
+    }
 
-            // Cria streams de objeto (oos primeiro, flush, depois ois)
-            ObjectOutputStream oos = new ObjectOutputStream(s.getOutputStream()); oos.flush();
-            ObjectInputStream  ois = new ObjectInputStream(s.getInputStream());
+    // PULL com os prazos de conexão e leitura da replicação; falhas saem como exceção.
+    // quiet: só registra no log se algo foi importado (rodadas automáticas não enchem o log).
+    int pull(String host, int port, boolean quiet) throws IOException {
+        long t0 = System.nanoTime();
+        metrics.pulls.increment();
+        // Negocia o protocolo binário; cai para serialização Java se o peer for antigo
+        try (MessageChannel ch = MessageChannel.connect(host, port, new Msg.Hello(Msg.Role.PEER),
+                Replicator.CONNECT_TIMEOUT_MS, Replicator.READ_TIMEOUT_MS)) {
+            PullStats stats = new PullStats(quiet);
+            stats.log("[SYNC] Conectando ao peer %s:%d...", host, port);
 
             // Lê banner do peer (apenas informativo)
-            Object banner = ois.readObject();
-            System.out.println("[SYNC] Recebido banner: " + banner);
-
-            // Envia comando de exportação e informa no log
-            oos.writeObject("EXPORT"); oos.flush();
-            System.out.println("[SYNC] Pedido EXPORT enviado");
-
-            // Espera uma lista de Question como resposta
-            Object resp = ois.readObject();
-            if (resp instanceof List<?> list) {
-                int added = 0;
-                for (Object o : list) {
-                    if (o instanceof Question q) {
-                        // Adiciona apenas perguntas novas (por id)
-                        if (!questions.containsKey(q.id)) {
-                            questions.put(q.id, q);
-                            added++;
-                        }
-                    }
+            Msg banner = ch.read();
+            stats.log("[SYNC] Recebido banner: %s", banner instanceof Msg.Banner b ? b.text() : banner);
+
+            if (ch.legacy()) exportFrom(ch, stats); else deltaFrom(ch, stats);
+            stats.persisted.join(); // Espera o fsync do último lote importado
+            if (quiet && stats.added > 0) {
+                Log.info("[SYNC] %s:%d → %d perguntas novas (total local %d)", host, port, stats.added, questions.size());
+            }
+            stats.log("[SYNC] Recebidas %d perguntas, adicionadas %d (total local %d)",
+                    stats.received, stats.added, questions.size());
+            stats.log("[SYNC] Tráfego: %d bytes enviados, %d bytes recebidos, %d registros em %d lotes",
+                    ch.bytesSent(), ch.bytesReceived(), stats.received, stats.batches);
+            metrics.pullImported.add(stats.added);
+            metrics.pullBytes.add(ch.bytesSent() + ch.bytesReceived());
+            metrics.pullDuration.recordSince(t0);
+            return stats.added;
+        } catch (IOException | RuntimeException e) {
+            metrics.pullErrors.increment();
+            throw e;
+        }
+    }
+
+    // Contagem de um PULL
+    private static final class PullStats {
+        final boolean quiet; // Rodada automática: sem o passo a passo no log
+        int received, added, batches;
+        CompletableFuture<Void> persisted = CompletableFuture.completedFuture(null); // Último lote no journal
+
+        PullStats(boolean quiet) { this.quiet = quiet; }
+
+        void log(String fmt, Object... args) {
+            if (!quiet) Log.info(fmt, args);
+        }
+    }
+
+    // Integra um lote assim que ele chega (sem esperar o resto) e registra as novas no journal,
+    // um registro por lote; os fsyncs acontecem em paralelo com a chegada dos próximos lotes.
+    private void merge(List<Question> batch, PullStats stats) {
+        List<Question> added = questions.addAll(batch); // Adiciona apenas perguntas novas (por id)
+        if (!added.isEmpty()) stats.persisted = journal.addQuestions(added);
+        stats.added += added.size();
+        stats.received += batch.size();
+        stats.batches++;
+    }
+
+    // Peer antigo: pede todas as perguntas (EXPORT) numa lista só
+    private void exportFrom(MessageChannel ch, PullStats stats) throws IOException {
+        ch.send(new Msg.Export(null));
+        stats.log("[SYNC] Pedido EXPORT enviado");
+        if (!(ch.read() instanceof Msg.Export resp) || resp.isRequest()) {
+            throw new StreamCorruptedException("resposta inesperada ao EXPORT");
+        }
+        merge(resp.questions(), stats);
+    }
+
+    // Recebe uma resposta em lotes: libera WINDOW lotes de início e mais um a cada lote integrado,
+    // então no máximo WINDOW lotes ficam em trânsito e a memória não depende do tamanho do banco.
+    private void receiveBatches(MessageChannel ch, PullStats stats) throws IOException {
+        ch.send(new Msg.Credit(ExportStream.WINDOW));
+        while (true) {
+            if (!(ch.read() instanceof Msg.Batch b)) throw new StreamCorruptedException("lote esperado");
+            merge(b.questions(), stats);
+            if (b.last()) return;
+            ch.send(new Msg.Credit(1));
+        }
+    }
+
+    // Peer novo: anti-entropia por resumos. Três idas e voltas pequenas em vez do banco inteiro.
+    private void deltaFrom(MessageChannel ch, PullStats stats) throws IOException {
+        try {
+            // 1) Resumos dos grupos
+            ch.send(new Msg.DigestRequest(null));
+            long[] remoteGroups = expectDigests(ch.read(), QuestionBank.GROUPS);
+            long[] localGroups = questions.groupDigests();
+            int[] groups = differing(localGroups, remoteGroups, 0, QuestionBank.GROUPS);
+            if (groups.length == 0) {
+                stats.log("[SYNC] Resumos iguais: nada a transferir");
+                return;
+            }
+
+            // 2) Resumos das folhas dos grupos que diferem
+            ch.send(new Msg.DigestRequest(groups));
+            long[] remoteLeaves = expectDigests(ch.read(), groups.length * QuestionBank.LEAVES_PER_GROUP);
+            long[] localLeaves = questions.leafDigests(groups);
+            int[] leaves = new int[localLeaves.length];
+            int k = 0;
+            for (int i = 0; i < groups.length; i++) {
+                for (int d : differing(localLeaves, remoteLeaves, i * QuestionBank.LEAVES_PER_GROUP,
+                        QuestionBank.LEAVES_PER_GROUP)) {
+                    leaves[k++] = groups[i] * QuestionBank.LEAVES_PER_GROUP + d;
                 }
-                if (added > 0) save(); // Persiste se importou algo
-                System.out.printf("[SYNC] Recebidas %d perguntas, adicionadas %d (total local %d)%n",
-                        list.size(), added, questions.size());
-                return added;
             }
-        } catch (Exception e) {
-            // Log amigável em caso de falha de rede/serialização
-            System.out.printf("[SYNC-ERRO] Falha ao puxar de %s:%d → %s%n", host, port, e.getMessage());
+            leaves = Arrays.copyOf(leaves, k);
+            stats.log("[SYNC] Resumos diferem em %d grupos / %d folhas", groups.length, leaves.length);
+
+            // 3) Perguntas das folhas que diferem que ainda não temos, um FETCH por faixa de folhas
+            for (int[] range : questions.fetchRanges(leaves, QuestionBank.FETCH_MAX_KEYS)) {
+                ch.send(new Msg.Fetch(range, questions.keysIn(range)));
+                receiveBatches(ch, stats);
+            }
+        } finally {
+            try { ch.send(new Msg.Quit()); } catch (IOException ignore) {} // Encerra a conversa com o peer
+        }
+    }
+
+    private static long[] expectDigests(Msg m, int expected) throws StreamCorruptedException {
+        if (m instanceof Msg.DigestReply r && r.digests().length == expected) return r.digests();
+        throw new StreamCorruptedException("resposta inesperada ao DIGEST");
+    }
+
+    // Posições (relativas a 'from') em que os resumos diferem, olhando 'count' entradas
+    private static int[] differing(long[] local, long[] remote, int from, int count) {
+        int[] out = new int[count];
+        int k = 0;
+        for (int i = 0; i < count; i++) if (local[from + i] != remote[from + i]) out[k++] = i;
+        return Arrays.copyOf(out, k);
+    }
+
+    // ---------- Importação ----------
+    // IMPORT de um arquivo local (console): análise em paralelo, um lote por vez no banco e no journal
+    void importFile(String file) {
+        Log.info("[IMPORT] Importando %s...", file);
+        try {
+            logImport(importer.importFile(Paths.get(file)), file);
+        } catch (IOException | InvalidPathException e) {
+            Log.error("[IMPORT] Falha ao importar %s: %s", file, e.getMessage());
+        } catch (CompletionException e) { // Falha do journal que escapou do resumo: não derruba o console
+            Log.error("[IMPORT] Falha ao gravar %s no journal: %s", file, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+
+    // Primeiro pedaço de um IMPORT pela rede: abre a sessão, ou null se a origem não pode importar
+    // (por padrão só conexões locais; -Dqaquiz.import.remote=true libera as demais)
+    Importer.Session openImport(SocketAddress who) {
+        boolean local = who instanceof InetSocketAddress a && a.getAddress() != null && a.getAddress().isLoopbackAddress();
+        if (!local && !IMPORT_REMOTE) {
+            Log.info("[IMPORT] Recusado de %s (conexão não local)", who);
+            return null;
+        }
+        Log.info("[IMPORT] Recebendo perguntas de %s...", who);
+        return importer.open();
+    }
+
+    static Msg.ImportResult importRefused() {
+        return new Msg.ImportResult(0, 0, 0, "IMPORT recusado: só conexões locais (qaquiz.import.remote)");
+    }
+
+    // Integra um pedaço e responde: créditos para os próximos (a janela inteira depois do primeiro),
+    // ou o resumo depois do último pedaço
+    Msg importChunk(Importer.Session session, Msg.Import chunk, SocketAddress who) {
+        session.accept(ByteBuffer.wrap(chunk.psv()));
+        if (!chunk.last()) return new Msg.Credit(session.chunks() == 1 ? Wire.IMPORT_WINDOW : 1);
+        Importer.Result r = session.finish();
+        logImport(r, String.valueOf(who));
+        if (r.journalError().isEmpty()) return new Msg.ImportResult(r.lines(), r.added(), r.invalid(), r.error());
+        // O cliente precisa saber que parte das novas não foi persistida (vem antes do erro de linha)
+        String error = String.format("falha no journal, %d novas não persistidas: %s", r.unsaved(), r.journalError());
+        return new Msg.ImportResult(r.lines(), r.added(), r.invalid(), r.error().isEmpty() ? error : error + "; " + r.error());
+    }
+
+    // IMPORT pela rede no modo bloqueante: um pedaço por vez, com o crédito do próximo após cada um
+    private void receiveImport(MessageChannel ch, Msg.Import first, SocketAddress who) throws IOException {
+        Importer.Session session = openImport(who);
+        if (session == null) { ch.send(importRefused()); return; }
+        Msg reply = importChunk(session, first, who);
+        while (reply instanceof Msg.Credit) {
+            ch.send(reply);
+            if (!(ch.read() instanceof Msg.Import next)) throw new StreamCorruptedException("pedaço de IMPORT esperado");
+            reply = importChunk(session, next, who);
+        }
+        ch.send(reply);
+    }
+
+    private void logImport(Importer.Result r, String source) {
+        double secs = Math.max(r.nanos() / 1e9, 1e-9);
+        Log.info("[IMPORT] %s: %d linhas, %d novas, %d repetidas, %d inválidas em %.0f ms (%.0f linhas/s, total %d)",
+                source, r.lines(), r.added(), r.duplicates(), r.invalid(), secs * 1000, r.lines() / secs, questions.size());
+        if (!r.error().isEmpty()) Log.info("[IMPORT] Primeira linha inválida → %s", r.error());
+        if (!r.journalError().isEmpty()) {
+            Log.error("[IMPORT] %s: %d perguntas novas NÃO foram gravadas no journal (%s); somem num reinício",
+                    source, r.unsaved(), r.journalError());
         }
-        return 0; // Nada importado
     }
 
     // ---------- Servidor ----------
     // Inicia o loop do servidor e aceita conexões de clientes e peers.
     public void serveForever() throws IOException {
         startAdminConsole(); // Inicia a thread de administração
-        try (ServerSocket server = new ServerSocket(port)) { // Abre porta para escutar
-            System.out.printf("[SERVE] Escutando em %s:%d%n", host, port);
+        replicator.start();  // Replicação periódica com os peers conhecidos
+        Integer metricsPort = Integer.getInteger("qaquiz.metrics.port"); // Endpoint /metrics opcional
+        if (metricsPort != null) {
+            try { metrics.startHttp(metricsPort); }
+            catch (IOException e) { Log.error("[ERRO] metrics: %s", e.getMessage()); }
+        }
+        if (engine == ConnectionEngine.NIO) { // Modo orientado a eventos: um seletor para todas as conexões
+            new NioEngine(this, host, port).run();
+            return;
+        }
+        ThreadFactory sessions = engine.sessionThreads(); // Thread virtual ou de plataforma por conexão
+        try (ServerSocket server = new ServerSocket(port, ACCEPT_BACKLOG)) { // Abre porta para escutar
+            Log.info("[SERVE] Escutando em %s:%d (engine=%s)", host, port, engine.name().toLowerCase());
             while (true) {
                 Socket client = server.accept(); // Bloqueia até um cliente conectar
-                System.out.printf("[CONNECT] Conexão de %s%n", client.getRemoteSocketAddress());
+                long acceptedAt = System.nanoTime();
+                metrics.connections.increment();
+                Log.info("[CONNECT] Conexão de %s", client.getRemoteSocketAddress());
                 // Cria uma thread para lidar com cada cliente/peer
-                new Thread(() -> handleClient(client)).start();
+                sessions.newThread(() -> handleClient(client, acceptedAt)).start();
             }
         }
     }
 
     // Trata uma conexão: pode ser um peer (EXPORT) ou um cliente do jogo.
-    private void handleClient(Socket s) {
+    private void handleClient(Socket s, long acceptedAt) {
+        MessageChannel ch = null;
+        GameSession game = null;
         try (s) { // Fecha o socket automaticamente ao sair
-            ObjectOutputStream oos = new ObjectOutputStream(s.getOutputStream()); oos.flush();
-            ObjectInputStream  ois = new ObjectInputStream(s.getInputStream());
+            // Negocia o protocolo pelos primeiros bytes do cliente (binário ou serialização Java)
+            s.setSoTimeout(HANDSHAKE_TIMEOUT_MS); // Prazo para a negociação e o HELLO
+            ch = MessageChannel.accept(s);
+            SocketAddress who = s.getRemoteSocketAddress();
 
             // Envia banner de identificação do servidor
-            oos.writeObject("BANNER:QAQuizServer"); oos.flush();
+            ch.send(new Msg.Banner(BANNER));
 
-            // Tenta ler o primeiro objeto rapidamente para detectar se é um peer pedindo EXPORT
-            Object first = null;
-            try { s.setSoTimeout(80); first = ois.readObject(); } catch (Exception ignore) {}
+            // Papel da conexão: declarado no HELLO (protocolo binário) ou detectado na janela (clientes antigos)
+            Msg first = ch.legacy() ? sniffLegacy(s, ch) : ch.read();
             s.setSoTimeout(0); // Volta ao modo bloqueante normal
 
-            // ----- Caso 1: Peer pedindo EXPORT -----
-            if (first instanceof String str && "EXPORT".equalsIgnoreCase(str)) {
-                System.out.printf("[PEER] Peer %s pediu EXPORT (%d perguntas)%n",
-                        s.getRemoteSocketAddress(), questions.size());
-                // Envia todas as perguntas como ArrayList serializável
-                oos.writeObject(new ArrayList<>(questions.values()));
-                oos.flush();
-                System.out.printf("[PEER] Enviadas %d perguntas para %s%n",
-                        questions.size(), s.getRemoteSocketAddress());
+            // ----- Caso 1: Peer (EXPORT ou sincronização por resumos) -----
+            if (roleOf(first) == Msg.Role.PEER) {
+                ch.maxFrame(Wire.MAX_FRAME); // Pedaços de IMPORT e listas de keys podem passar do limite inicial
+                servePeer(ch, (first instanceof Msg.Hello) ? ch.read() : first, who); // Depois do HELLO vem o pedido
                 return; // Fim do atendimento ao peer
             }
 
             // ----- Caso 2: Cliente do jogo -----
-            List<Question> pool = new ArrayList<>(questions.values()); // Copia perguntas atuais
-            Collections.shuffle(pool, rng);                            // Embaralha ordem
-            int score = 0, idx = 0;                                   // Estado do jogo
+            game = newGame(first, who);
+            // Loop do jogo: recebe respostas, valida e manda feedback. As mensagens de cada passo
+            // (RESULT + próxima pergunta, ou END/BYE) são escritas juntas e saem num flush só.
+            boolean playing = startGame(game, ch::write);
+            ch.flush();
+            if (playing) metrics.setupLatency.recordSince(acceptedAt); // Primeira pergunta já está no socket
+            while (playing) {
+                playing = onPlayerMessage(game, ch.read(), ch::write, who);
+                ch.flush();
+            }
+        } catch (Exception e) {
+            logDisconnect(s.getRemoteSocketAddress(), e);
+        } finally {
+            if (game != null) endGame(game);
+            if (ch != null) {
+                metrics.bytesSent.add(ch.bytesSent());
+                metrics.bytesReceived.add(ch.bytesReceived());
+            }
+        }
+    }
+
+    // Clientes antigos não se identificam: espera um EXPORT por até SNIFF_TIMEOUT_MS, senão é jogador
+    private static Msg sniffLegacy(Socket s, MessageChannel ch) throws IOException {
+        s.setSoTimeout(SNIFF_TIMEOUT_MS);
+        try { return ch.read(); } catch (Exception e) { return null; }
+    }
 
-            if (pool.isEmpty()) { oos.writeObject("END|" + score); return; } // Sem perguntas
+    // ---------- Jogo (comum aos modos bloqueante e NIO) ----------
+    // Destino das mensagens de uma sessão: canal bloqueante ou buffer de saída do seletor.
+    interface MessageSink {
+        void send(Msg msg) throws IOException;
+    }
 
-            // Envia a primeira pergunta ao cliente
-            oos.writeObject(pool.get(idx)); oos.flush();
+    static boolean isExportRequest(Msg m) {
+        return m instanceof Msg.Export e && e.isRequest();
+    }
 
-            // Loop do jogo: recebe respostas, valida e manda feedback
-            while (true) {
-                Object obj = ois.readObject(); // Espera comando do cliente
-
-                if (obj instanceof String cmd) {
-                    if (cmd.equalsIgnoreCase("SAIR")) { // Cliente pediu para sair
-                        oos.writeObject("BYE|" + score); // Envia pontuação final
-                        System.out.printf("[GAME] Cliente %s saiu. Score final=%d%n",
-                                s.getRemoteSocketAddress(), score);
-                        break; // Encerra o jogo para este cliente
-                    }
+    // Papel pela primeira mensagem: HELLO declara; sem HELLO, um EXPORT identifica um peer antigo
+    static Msg.Role roleOf(Msg first) {
+        if (first instanceof Msg.Hello h) return h.role();
+        return isExportRequest(first) ? Msg.Role.PEER : Msg.Role.PLAYER;
+    }
 
-                    if (cmd.startsWith("ANSWER:")) { // Cliente enviou uma resposta
-                        String[] p = cmd.split(":", -1); // "ANSWER:<id>:<indice>"
-                        if (p.length == 3) {
-                            String qid = p[1];                      // ID informado pelo cliente
-                            int choice = Integer.parseInt(p[2]);    // Alternativa escolhida
-                            Question q = pool.get(idx);             // Pergunta corrente
-
-                            // Valida id e alternativa correta
-                            boolean correct = q.id.equals(qid) && choice == q.correct;
-                            if (correct) score++; // Soma ponto se acertou
-
-                            // Retorna feedback e score atualizado
-                            oos.writeObject("RESULT|" + correct + "|" + score); oos.flush();
-
-                            System.out.printf("[GAME] Cliente %s respondeu %s (correto=%b, score=%d)%n",
-                                    s.getRemoteSocketAddress(), qid, correct, score);
-
-                            // Avança para a próxima pergunta
-                            idx++;
-                            if (idx >= pool.size()) {
-                                // Se acabou, envia END com score final
-                                oos.writeObject("END|" + score);
-                                System.out.printf("[GAME] Cliente %s terminou o jogo. Score=%d%n",
-                                        s.getRemoteSocketAddress(), score);
-                                break; // Encerra o jogo
-                            } else {
-                                // Caso contrário, envia a próxima pergunta
-                                oos.writeObject(pool.get(idx)); oos.flush();
-                            }
-                        }
-                    }
-                }
+    // Atende pedidos de um peer em sequência até QUIT/EOF. EXPORT de peer antigo e IMPORT encerram no fim.
+    private void servePeer(MessageChannel ch, Msg req, SocketAddress who) throws IOException {
+        if (req instanceof Msg.Import chunk) { receiveImport(ch, chunk, who); return; } // Conexão só para o IMPORT
+        while (true) {
+            ExportStream stream = ch.legacy() ? null : openPeerStream(req, who);
+            if (stream != null) {
+                if (!sendBatches(ch, stream)) return;
+                logPeerSent(stream, who);
+            } else {
+                Msg reply = peerReply(req, who);
+                if (reply == null) return; // QUIT ou pedido desconhecido
+                ch.send(reply);
+                if (isExportRequest(req)) { logPeerSent(reply, who); return; }
             }
-        } catch (Exception e) {
-            // Log quando a conexão encerra inesperadamente ou há erro de E/S
-            System.out.printf("[DISCONNECT] Cliente/peer %s encerrou conexão (%s)%n",
-                    s.getRemoteSocketAddress(), e.getMessage());
+            try {
+                do { req = ch.read(); } while (req instanceof Msg.Credit); // Créditos que sobraram do último envio
+            } catch (EOFException e) { return; } // Peer fechou a conexão
+        }
+    }
+
+    // Envia os lotes conforme o receptor libera créditos. Retorna false se o peer desistiu.
+    private static boolean sendBatches(MessageChannel ch, ExportStream stream) throws IOException {
+        int credit = 0;
+        while (!stream.done()) {
+            while (credit == 0) {
+                Msg m = ch.read();
+                if (m instanceof Msg.Credit c) credit += c.batches();
+                else if (m instanceof Msg.Quit) return false;
+            }
+            ch.send(stream.next());
+            credit--;
+        }
+        return true;
+    }
+
+    // Pedidos respondidos em lotes (protocolo binário): EXPORT completo e FETCH de folhas. null para os demais.
+    ExportStream openPeerStream(Msg req, SocketAddress who) {
+        if (isExportRequest(req)) {
+            Log.info("[PEER] Peer %s pediu EXPORT (%d perguntas)", who, questions.size());
+            return new ExportStream(questions.values().iterator()); // Lê o banco sob demanda, sem copiar
+        }
+        if (req instanceof Msg.Fetch f) {
+            // Perguntas das folhas pedidas que o peer ainda não tem
+            Log.info("[PEER] Peer %s pediu %d folhas (tem %d ids nelas)", who, f.leaves().length, f.haveKeys().length);
+            long[] have = f.haveKeys();
+            Arrays.sort(have); // Para a busca binária (quem envia já manda em ordem)
+            return new ExportStream(questions.iterateLeaves(f.leaves(), q -> Arrays.binarySearch(have, q.key) < 0));
+        }
+        return null;
+    }
+
+    // Resposta de mensagem única a um pedido de peer (resumos; EXPORT de peer antigo). null encerra o atendimento.
+    Msg peerReply(Msg req, SocketAddress who) {
+        if (isExportRequest(req)) {
+            Log.info("[PEER] Peer %s pediu EXPORT (%d perguntas)", who, questions.size());
+            return new Msg.Export(new ArrayList<>(questions.values())); // Peer antigo: lista completa
+        }
+        if (req instanceof Msg.DigestRequest d) {
+            return new Msg.DigestReply(d.groups() == null ? questions.groupDigests() : questions.leafDigests(d.groups()));
+        }
+        return null;
+    }
+
+    void logPeerSent(ExportStream stream, SocketAddress who) {
+        metrics.exportsServed.increment();
+        metrics.exportQuestions.add(stream.sent());
+        metrics.exportDuration.recordSince(stream.startedAt);
+        Log.info("[PEER] Enviadas %d perguntas para %s", stream.sent(), who);
+    }
+
+    void logPeerSent(Msg reply, SocketAddress who) {
+        if (reply instanceof Msg.Export e) {
+            metrics.exportsServed.increment();
+            metrics.exportQuestions.add(e.questions().size());
+            Log.info("[PEER] Enviadas %d perguntas para %s", e.questions().size(), who);
+        }
+    }
+
+    void logDisconnect(SocketAddress who, Throwable e) {
+        // Log quando a conexão encerra inesperadamente ou há erro de E/S
+        Log.info("[DISCONNECT] Cliente/peer %s encerrou conexão (%s)", who, e.getMessage());
+    }
+
+    // Nova partida sobre o vetor compartilhado das perguntas atuais (a ordem é sorteada sob demanda).
+    // O HELLO pode escolher tópicos (só as perguntas deles, do índice por tópico) e pedir o modo pipeline.
+    // Clientes antigos não mandam HELLO: banco inteiro, uma pergunta por vez.
+    GameSession newGame(Msg first, SocketAddress who) {
+        Msg.Hello hello = first instanceof Msg.Hello h ? h : new Msg.Hello(Msg.Role.PLAYER);
+        if (hello.pipeline() > 0) Log.info("[GAME] Cliente %s pediu pipeline de %d perguntas", who, hello.pipeline());
+        if (hello.topics().isEmpty()) return new GameSession(questions.snapshot(), hello.pipeline());
+        Question[] pool = questions.topicSnapshot(hello.topics());
+        Log.info("[GAME] Cliente %s escolheu tópicos %s (%d perguntas)", who, hello.topics(), pool.length);
+        return new GameSession(pool, hello.pipeline());
+    }
+
+    // Envia as primeiras perguntas ao cliente. Retorna false se não há perguntas (jogo já encerrado).
+    // A latência de setup é registrada por quem chama, depois que a primeira pergunta foi escrita no socket.
+    boolean startGame(GameSession game, MessageSink out) throws IOException {
+        if (!deal(game, out)) { out.send(new Msg.End(game.score())); return false; }
+        metrics.sessionsStarted.increment();
+        metrics.sessionsActive.increment();
+        game.active = true;
+        return true;
+    }
+
+    // Completa a janela de perguntas do jogador: uma pergunta (clássico) ou um PREFETCH com as que
+    // couberem (pipeline). Retorna false se não havia nada a enviar.
+    private static boolean deal(GameSession game, MessageSink out) throws IOException {
+        Question q = game.deal();
+        if (q == null) return false;
+        if (!game.pipelined) { out.send(new Msg.Ask(q)); return true; }
+        List<Question> batch = new ArrayList<>(4);
+        do batch.add(q); while ((q = game.deal()) != null);
+        out.send(new Msg.Prefetch(batch));
+        return true;
+    }
+
+    // Fim da conexão de um jogador (normal ou por erro)
+    void endGame(GameSession game) {
+        if (!game.active) return;
+        game.active = false;
+        metrics.sessionsActive.decrement();
+    }
+
+    // Processa uma mensagem do jogador. Retorna false quando a sessão termina.
+    boolean onPlayerMessage(GameSession game, Msg msg, MessageSink out, SocketAddress who) throws IOException {
+        if (msg instanceof Msg.Quit) { // Cliente pediu para sair
+            Log.info("[GAME] Cliente %s saiu. Score final=%d", who, game.score());
+            out.send(new Msg.Bye(game.score())); // Envia pontuação final (o cliente pode já ter fechado)
+            return false; // Encerra o jogo para este cliente
+        }
+
+        if (msg instanceof Msg.Answer a && game.awaiting()) { // Cliente enviou uma resposta
+            long receivedAt = System.nanoTime();
+            // RTT da pergunta respondida (no pipeline, a mais antiga da janela), não da última enviada
+            metrics.answerRtt.recordMicros((receivedAt - game.askedAt()) / 1_000);
+            // Valida id e alternativa correta (e avança para a próxima pergunta)
+            boolean correct = game.answer(a.questionId(), a.choice());
+            metrics.answers.increment();
+            if (correct) metrics.answersCorrect.increment();
+
+            // Retorna feedback e score atualizado (sai na mesma escrita que a próxima pergunta)
+            out.send(new Msg.Result(correct, game.score()));
+
+            if (Log.sampleAnswer()) { // Log por resposta é amostrado (qaquiz.log.answers)
+                Log.info("[GAME] Cliente %s respondeu %s (correto=%b, score=%d)",
+                        who, a.questionId(), correct, game.score());
+            }
+
+            if (game.finished()) {
+                // Se acabou, envia END com score final
+                out.send(new Msg.End(game.score()));
+                metrics.answerService.recordSince(receivedAt);
+                Log.info("[GAME] Cliente %s terminou o jogo. Score=%d", who, game.score());
+                return false; // Encerra o jogo
+            }
+            deal(game, out); // Caso contrário, envia a próxima pergunta (no pipeline, repõe a janela)
+            metrics.answerService.recordSince(receivedAt);
         }
+        return true; // Ignora mensagens inesperadas
     }
 }
@@ -0,0 +1,273 @@
+package server;
+
+import schema.Question; // Modelo de pergunta
+
+import java.util.*;                            // Coleções utilitárias
+import java.util.concurrent.ConcurrentHashMap; // Índice de tópicos
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Banco de perguntas em memória com um resumo (árvore de hashes de 2 níveis) mantido a cada inserção.
+// Peers comparam os resumos e transferem só as perguntas dos baldes que diferem.
+//
+//   folha  = XOR das keys (hash de 64 bits do conteúdo) das perguntas que caem nela (LEAVES folhas)
+//   grupo  = XOR das folhas do grupo (GROUPS grupos de LEAVES_PER_GROUP folhas)
+final class QuestionBank {
+    static final int GROUPS = 64;
+    static final int LEAVES_PER_GROUP = 64;
+    static final int LEAVES = GROUPS * LEAVES_PER_GROUP;
+    static final long SNAPSHOT_MAX_AGE_NANOS = 100_000_000L; // Intervalo mínimo entre cópias do banco
+    static final int FETCH_MAX_KEYS = 64 * 1024;            // Keys por FETCH (≈512 KB): faixas de folhas por pedido
+
+    private final QuestionTable byKey = new QuestionTable();               // Perguntas por key (64 bits)
+    private final LongAdder collisions = new LongAdder();                  // Keys iguais com conteúdo diferente
+    private final AtomicLongArray leafDigest = new AtomicLongArray(LEAVES);
+    private final AtomicLongArray groupDigest = new AtomicLongArray(GROUPS);
+    private final List<List<Question>> leaves = new ArrayList<>(LEAVES); // Perguntas de cada folha (só cresce)
+    private final AtomicLong version = new AtomicLong();                  // Muda a cada pergunta nova
+    private volatile Snapshot snapshot =                                    // Cópia compartilhada pelas partidas
+            new Snapshot(0, System.nanoTime() - SNAPSHOT_MAX_AGE_NANOS, new Question[0]);
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();   // Índice: tópico (minúsculo) → perguntas
+
+    // Vetor imutável das perguntas numa versão do banco (ninguém escreve nele depois de publicado)
+    private record Snapshot(long version, long builtAt, Question[] items) {}
+
+    // Perguntas de um tópico, com o vetor compartilhado refeito quando o tópico cresce
+    private static final class Topic {
+        final String name;                                   // Grafia da primeira pergunta do tópico
+        final List<Question> members = new ArrayList<>();    // Só cresce (acesso sob o lock do tópico)
+        Question[] snapshot = new Question[0];
+
+        Topic(String name) { this.name = name; }
+
+        synchronized void add(Question q) { members.add(q); }
+
+        synchronized int size() { return members.size(); }
+
+        synchronized Question[] snapshot() {
+            if (snapshot.length != members.size()) snapshot = members.toArray(new Question[0]);
+            return snapshot;
+        }
+    }
+
+    QuestionBank() {
+        for (int i = 0; i < LEAVES; i++) leaves.add(new ArrayList<>());
+    }
+
+    // Adiciona se a key ainda não existe. Retorna true se a pergunta é nova.
+    // Mesma key com conteúdo diferente é uma colisão de hash: a pergunta nova não entra, mas fica contada e no log.
+    boolean add(Question q) {
+        Question prev = byKey.putIfAbsent(q);
+        if (prev != null) {
+            if (!prev.sameContent(q)) collision(q, prev);
+            return false;
+        }
+        index(q);
+        version.incrementAndGet();
+        return true;
+    }
+
+    // Lote (PULL, IMPORT): uma passagem pela tabela com um lock só e uma versão nova por lote.
+    // Retorna as perguntas que entraram; repetidas (no banco ou no próprio lote) ficam de fora.
+    List<Question> addAll(List<Question> batch) {
+        Question[] prev = byKey.putAllAbsent(batch);
+        List<Question> added = new ArrayList<>(batch.size());
+        for (int i = 0; i < prev.length; i++) {
+            Question q = batch.get(i);
+            if (prev[i] == null) {
+                index(q);
+                added.add(q);
+            } else if (!prev[i].sameContent(q)) {
+                collision(q, prev[i]);
+            }
+        }
+        if (!added.isEmpty()) version.incrementAndGet();
+        return added;
+    }
+
+    // Folha, resumos e índice de tópicos de uma pergunta que acabou de entrar na tabela
+    private void index(Question q) {
+        long h = q.key;
+        int leaf = leafOf(h);
+        List<Question> members = leaves.get(leaf);
+        synchronized (members) { members.add(q); }
+        leafDigest.accumulateAndGet(leaf, h, (a, b) -> a ^ b);
+        groupDigest.accumulateAndGet(leaf / LEAVES_PER_GROUP, h, (a, b) -> a ^ b);
+        topics.computeIfAbsent(topicKey(q.topic), k -> new Topic(q.topic)).add(q);
+    }
+
+    private void collision(Question q, Question prev) {
+        collisions.increment();
+        Log.error("[BANK] Colisão de id %s: \"%s\" descartada (já existe \"%s\")", q.id(), q.text, prev.text);
+    }
+
+    // Perguntas atuais num vetor compartilhado: refeito só quando o banco mudou desde a última cópia.
+    // Durante uma importação (o banco muda a cada lote) a cópia é refeita no máximo a cada
+    // SNAPSHOT_MAX_AGE_NANOS: as partidas que começam nesse meio-tempo ficam sem as perguntas dos
+    // últimos ms, em vez de cada uma copiar o banco inteiro. Quem recebe não deve alterar o vetor.
+    Question[] snapshot() {
+        Snapshot s = snapshot;
+        long now = System.nanoTime();
+        if (s.version == version.get() || now - s.builtAt < SNAPSHOT_MAX_AGE_NANOS) return s.items;
+        synchronized (this) { // Várias partidas começando juntas fazem uma cópia só
+            s = snapshot;
+            long v = version.get(); // Lida antes da cópia: uma inserção concorrente gera nova cópia depois
+            if (s.version != v && now - s.builtAt >= SNAPSHOT_MAX_AGE_NANOS) {
+                snapshot = s = new Snapshot(v, System.nanoTime(), byKey.toArray(new Question[0]));
+            }
+            return s.items;
+        }
+    }
+
+    boolean contains(long key) { return byKey.containsKey(key); }
+
+    int size() { return byKey.size(); }
+
+    Collection<Question> values() { return byKey; }
+
+    long collisions() { return collisions.sum(); }
+
+    // ---------- Tópicos ----------
+    // Perguntas dos tópicos pedidos (sem diferenciar maiúsculas), pelo índice: custo proporcional
+    // às perguntas encontradas. Tópicos desconhecidos são ignorados.
+    Question[] topicSnapshot(Collection<String> names) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String n : names) keys.add(topicKey(n));
+        if (keys.size() == 1) { // Caso comum: o vetor do tópico é compartilhado sem cópia
+            Topic t = topics.get(keys.iterator().next());
+            return t == null ? new Question[0] : t.snapshot();
+        }
+        List<Question[]> parts = new ArrayList<>();
+        int total = 0;
+        for (String k : keys) {
+            Topic t = topics.get(k);
+            if (t == null) continue;
+            Question[] p = t.snapshot();
+            parts.add(p);
+            total += p.length;
+        }
+        Question[] out = new Question[total];
+        int i = 0;
+        for (Question[] p : parts) {
+            System.arraycopy(p, 0, out, i, p.length);
+            i += p.length;
+        }
+        return out;
+    }
+
+    // Quantidade de perguntas por tópico, em ordem alfabética, direto do índice
+    SortedMap<String, Integer> topicCounts() {
+        SortedMap<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Topic t : topics.values()) counts.put(t.name, t.size());
+        return counts;
+    }
+
+    private static String topicKey(String topic) {
+        return topic.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ---------- Resumos ----------
+    long[] groupDigests() {
+        long[] d = new long[GROUPS];
+        for (int g = 0; g < GROUPS; g++) d[g] = groupDigest.get(g);
+        return d;
+    }
+
+    // Resumos das folhas dos grupos pedidos, em ordem (LEAVES_PER_GROUP por grupo)
+    long[] leafDigests(int[] groups) {
+        long[] d = new long[groups.length * LEAVES_PER_GROUP];
+        int i = 0;
+        for (int g : groups) {
+            checkIndex(g, GROUPS);
+            for (int l = 0; l < LEAVES_PER_GROUP; l++) d[i++] = leafDigest.get(g * LEAVES_PER_GROUP + l);
+        }
+        return d;
+    }
+
+    // Percorre as perguntas das folhas informadas que passam no filtro, copiando uma folha por vez
+    Iterator<Question> iterateLeaves(int[] leafIdx, Predicate<Question> filter) {
+        for (int leaf : leafIdx) checkIndex(leaf, LEAVES);
+        return new Iterator<>() {
+            private int next = 0;                                      // Próxima folha a abrir
+            private Iterator<Question> current = Collections.emptyIterator();
+            private Question ahead;                                    // Próximo elemento já filtrado
+
+            @Override
+            public boolean hasNext() {
+                while (ahead == null) {
+                    if (current.hasNext()) {
+                        Question q = current.next();
+                        if (filter.test(q)) ahead = q;
+                    } else if (next < leafIdx.length) {
+                        current = questionsIn(new int[]{leafIdx[next++]}).iterator();
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Question next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Question q = ahead;
+                ahead = null;
+                return q;
+            }
+        };
+    }
+
+    // Folhas divididas em faixas consecutivas com até maxKeys perguntas locais cada (uma folha maior
+    // que o limite vai sozinha): cada faixa vira um FETCH, com frame e memória limitados.
+    List<int[]> fetchRanges(int[] leafIdx, int maxKeys) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int from = 0, to; from < leafIdx.length; from = to) {
+            long keys = leafSize(leafIdx[from]);
+            for (to = from + 1; to < leafIdx.length; to++) {
+                int n = leafSize(leafIdx[to]);
+                if (keys + n > maxKeys) break;
+                keys += n;
+            }
+            ranges.add(Arrays.copyOfRange(leafIdx, from, to));
+        }
+        return ranges;
+    }
+
+    private int leafSize(int leaf) {
+        checkIndex(leaf, LEAVES);
+        List<Question> members = leaves.get(leaf);
+        synchronized (members) { return members.size(); }
+    }
+
+    // Keys locais nas folhas informadas (o que este nó já tem), em ordem
+    long[] keysIn(int[] leafIdx) {
+        List<Question> members = questionsIn(leafIdx);
+        long[] keys = new long[members.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = members.get(i).key;
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    // Perguntas locais nas folhas informadas
+    List<Question> questionsIn(int[] leafIdx) {
+        List<Question> out = new ArrayList<>();
+        for (int leaf : leafIdx) {
+            checkIndex(leaf, LEAVES);
+            List<Question> members = leaves.get(leaf);
+            synchronized (members) { out.addAll(members); }
+        }
+        return out;
+    }
+
+    // A key da pergunta decide a folha (bits altos; a tabela de perguntas usa os baixos)
+    static int leafOf(long key) {
+        return (int) (key >>> (64 - 12)); // 12 bits altos → 4096 folhas
+    }
+
+    private static void checkIndex(int i, int bound) {
+        if (i < 0 || i >= bound) throw new IllegalArgumentException("índice de balde inválido: " + i);
+    }
+}
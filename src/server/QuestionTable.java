@@ -0,0 +1,131 @@
+package server;
+
+import schema.Question; // Modelo de pergunta
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Perguntas por key (hash de 64 bits do conteúdo) numa tabela de endereçamento aberto com sondagem
+// linear: dois vetores paralelos, sem nó nem chave em objeto por entrada.
+//
+// Escritas são serializadas (synchronized); leituras não travam e usam a tabela publicada no campo
+// volatile. Numa tabela já publicada, cada posição é gravada com release (pergunta, depois key) e lida
+// com acquire: quem vê a key vê a pergunta inteira. Uma leitura concorrente com uma inserção pode não
+// ver a pergunta nova (como os iteradores fracamente consistentes do ConcurrentHashMap).
+// Key 0 marca posição vazia (Question nunca gera 0).
+final class QuestionTable extends AbstractCollection<Question> {
+    private static final int MIN_CAPACITY = 16;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Question[].class);
+
+    private record Table(long[] keys, Question[] values) {
+        Table(int capacity) { this(new long[capacity], new Question[capacity]); }
+    }
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile int size;
+
+    // Insere se a key ainda não existe; senão devolve a pergunta que já está na tabela
+    synchronized Question putIfAbsent(Question q) {
+        return insert(q);
+    }
+
+    // Lote com um lock só: para cada pergunta, a que já estava na tabela (inclusive uma anterior do
+    // mesmo lote) ou null se ela entrou
+    synchronized Question[] putAllAbsent(List<Question> qs) {
+        Question[] prev = new Question[qs.size()];
+        for (int i = 0; i < prev.length; i++) prev[i] = insert(qs.get(i));
+        return prev;
+    }
+
+    private Question insert(Question q) {
+        Table t = table;
+        int i = slot(t.keys, q.key);
+        if (t.keys[i] != 0) return t.values[i];
+        if ((size + 1) * 2 > t.keys.length) { // Fator de carga até 1/2: sondagens curtas
+            t = grow(t);
+            i = slot(t.keys, q.key);
+        }
+        VALUES.setRelease(t.values, i, q); // Valor antes da key: quem acha a key já encontra a pergunta
+        KEYS.setRelease(t.keys, i, q.key);
+        size++;
+        return null;
+    }
+
+    Question get(long key) {
+        Table t = table;
+        long[] keys = t.keys;
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long k = (long) KEYS.getAcquire(keys, i);
+            if (k == 0) return null;
+            if (k == key) return (Question) VALUES.getAcquire(t.values, i);
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Percorre a tabela publicada no momento da chamada
+    @Override
+    public Iterator<Question> iterator() {
+        Question[] values = table.values;
+        return new Iterator<>() {
+            private Question ahead;
+            private int i = advance(0);
+
+            // Próxima posição ocupada a partir de from (a pergunta lida fica em ahead)
+            private int advance(int from) {
+                while (from < values.length && (ahead = (Question) VALUES.getAcquire(values, from)) == null) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() { return i < values.length; }
+
+            @Override
+            public Question next() {
+                if (i >= values.length) throw new NoSuchElementException();
+                Question q = ahead;
+                i = advance(i + 1);
+                return q;
+            }
+        };
+    }
+
+    // Dobra a tabela (sob o lock) e só então a publica: leitores veem a antiga ou a nova, sempre completas
+    private Table grow(Table old) {
+        Table t = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] == 0) continue;
+            int j = slot(t.keys, old.keys[i]);
+            t.values[j] = old.values[i];
+            t.keys[j] = old.keys[i];
+        }
+        table = t;
+        return t;
+    }
+
+    // Posição da key ou a primeira vazia da sua sequência de sondagem
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    // Bits baixos do hash (a key já vem misturada pelo finalizador do Murmur)
+    private static int index(long key, int mask) {
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,190 @@
+package server;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Replicação em segundo plano: a cada rodada puxa (PULL por resumos) de todos os peers conhecidos,
+// no máximo FANOUT ao mesmo tempo, numa pool própria e pequena (as sessões de jogo não disputam
+// com um número de threads que cresce com os peers). Com os bancos iguais, cada PULL é uma ida e
+// volta de resumos; uma pergunta nova chega aos vizinhos na rodada seguinte e se espalha salto a salto.
+// Peers que falham esperam INTERVAL · 2^falhas (até MAX_BACKOFF, com variação aleatória) antes de
+// uma nova tentativa.
+final class Replicator {
+    static final int INTERVAL_MS = Integer.getInteger("qaquiz.sync.interval", 2_000);        // 0 desliga
+    static final int FANOUT = Math.max(1, Integer.getInteger("qaquiz.sync.fanout", 4));       // PULLs simultâneos
+    static final int CONNECT_TIMEOUT_MS = Integer.getInteger("qaquiz.sync.connectTimeout", 2_000);
+    static final int READ_TIMEOUT_MS = Integer.getInteger("qaquiz.sync.readTimeout", 10_000); // Por leitura
+    static final int MAX_BACKOFF_MS = Integer.getInteger("qaquiz.sync.maxBackoff", 60_000);
+
+    // Quem executa o PULL de fato (QAQuizServer.pull); lança exceção quando o peer falha
+    interface Puller {
+        int pull(String host, int port) throws Exception;
+    }
+
+    private final Set<String> peers;  // Conjunto vivo: ADD_PEER entra na rodada seguinte
+    private final int localPort;      // Para não puxar de si mesmo
+    private final Puller puller;
+    private final Map<String, PeerState> states = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService workers;
+
+    // Situação de um peer (acesso sob o lock do próprio estado)
+    private static final class PeerState {
+        final String peer;
+        boolean running;         // PULL em andamento (no máximo um por peer)
+        boolean self;            // Endereço deste servidor: ignorado
+        long nextAt;             // System.nanoTime da próxima tentativa
+        int failures;            // Falhas seguidas
+        long lastSyncAt;         // System.currentTimeMillis do último PULL completo (0 = nunca)
+        long lastMillis;         // Duração do último PULL completo
+        int lastAdded;           // Perguntas novas no último PULL
+        long totalAdded;
+        String lastError;        // Erro da última falha (null depois de um sucesso)
+
+        PeerState(String peer) { this.peer = peer; }
+    }
+
+    Replicator(Set<String> peers, int localPort, Puller puller) {
+        this.peers = peers;
+        this.localPort = localPort;
+        this.puller = puller;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(daemon("qaquiz-sync-ticker"));
+        this.workers = Executors.newFixedThreadPool(FANOUT, daemon("qaquiz-sync-"));
+    }
+
+    void start() {
+        if (INTERVAL_MS <= 0) {
+            Log.info("[SYNC] Replicação automática desligada (qaquiz.sync.interval=0)");
+            return;
+        }
+        ticker.scheduleWithFixedDelay(this::round, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Log.info("[SYNC] Replicação automática a cada %d ms (até %d peers em paralelo)", INTERVAL_MS, FANOUT);
+    }
+
+    // Para as rodadas e interrompe os PULLs em andamento
+    void close() {
+        ticker.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // Próxima rodada já, sem esperar o backoff de quem vinha falhando
+    void syncNow() {
+        for (PeerState s : states.values()) {
+            synchronized (s) { s.nextAt = System.nanoTime(); }
+        }
+        ticker.execute(this::round);
+    }
+
+    // ---------- Rodadas ----------
+    // Enfileira os peers cuja vez chegou. Um peer ainda em andamento não entra de novo: a fila
+    // nunca passa do número de peers, mesmo com peers lentos.
+    private void round() {
+        long now = System.nanoTime();
+        states.keySet().retainAll(peers); // Peers que saíram do conjunto
+        for (String peer : peers) {
+            PeerState s = states.computeIfAbsent(peer, PeerState::new);
+            synchronized (s) {
+                if (s.running || s.self || now - s.nextAt < 0) continue;
+                s.running = true;
+            }
+            workers.execute(() -> pull(s, now));
+        }
+    }
+
+    private void pull(PeerState s, long roundAt) {
+        long t0 = System.nanoTime();
+        try {
+            int sep = s.peer.lastIndexOf(':');
+            String host = s.peer.substring(0, Math.max(sep, 0));
+            int port = Integer.parseInt(s.peer.substring(sep + 1)); // "host:port" inválido conta como falha
+            if (isSelf(host, port)) {
+                synchronized (s) { s.self = true; }
+                Log.info("[SYNC] Peer %s é este servidor: ignorado na replicação", s.peer);
+                return;
+            }
+            int added = puller.pull(host, port);
+            synchronized (s) {
+                if (s.failures > 0) Log.info("[SYNC] Peer %s voltou depois de %d falhas", s.peer, s.failures);
+                s.failures = 0;
+                s.lastError = null;
+                s.lastSyncAt = System.currentTimeMillis();
+                s.lastMillis = (System.nanoTime() - t0) / 1_000_000;
+                s.lastAdded = added;
+                s.totalAdded += added;
+                s.nextAt = roundAt + TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS); // Entra na próxima rodada
+            }
+        } catch (Exception e) {
+            synchronized (s) {
+                s.failures++;
+                s.lastError = String.valueOf(e.getMessage() != null ? e.getMessage() : e);
+                long wait = backoffMillis(s.failures);
+                s.nextAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+                if (s.failures == 1 || s.failures % 10 == 0) { // Sem repetir a cada tentativa
+                    Log.info("[SYNC-ERRO] Peer %s: %s (falha %d, nova tentativa em %d ms)",
+                            s.peer, s.lastError, s.failures, wait);
+                }
+            }
+        } finally {
+            synchronized (s) { s.running = false; }
+        }
+    }
+
+    // INTERVAL · 2^(falhas-1), limitado a MAX_BACKOFF, com variação de até -25% para os nós não
+    // tentarem todos no mesmo instante quando um peer volta
+    static long backoffMillis(int failures) {
+        long base = Math.max(INTERVAL_MS, 100);
+        long wait = Math.min(MAX_BACKOFF_MS, base << Math.min(failures - 1, 20));
+        return wait - ThreadLocalRandom.current().nextLong(wait / 4 + 1);
+    }
+
+    // O peer aponta para este servidor (mesma porta numa interface local)?
+    private boolean isSelf(String host, int port) {
+        if (port != localPort) return false;
+        try {
+            InetAddress a = InetAddress.getByName(host);
+            return a.isAnyLocalAddress() || a.isLoopbackAddress() || NetworkInterface.getByInetAddress(a) != null;
+        } catch (Exception e) {
+            return false; // Sem resolver agora: tenta o PULL, que falha e entra no backoff
+        }
+    }
+
+    // ---------- Console ----------
+    // Situação de cada peer para o comando SYNC
+    String status() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Replicação: %s, até %d em paralelo (prazos: conexão %d ms, leitura %d ms)",
+                INTERVAL_MS > 0 ? "a cada " + INTERVAL_MS + " ms" : "desligada", FANOUT,
+                CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS));
+        long now = System.nanoTime(), wall = System.currentTimeMillis();
+        for (String peer : new TreeSet<>(peers)) {
+            PeerState s = states.get(peer);
+            sb.append(String.format(Locale.ROOT, "%n  %-24s ", peer));
+            if (s == null) { sb.append("aguardando a primeira rodada"); continue; }
+            synchronized (s) {
+                if (s.self) { sb.append("este servidor (ignorado)"); continue; }
+                sb.append(s.lastSyncAt == 0 ? "nunca sincronizado"
+                        : String.format(Locale.ROOT, "último PULL há %.1fs (%d ms, +%d; total +%d)",
+                        (wall - s.lastSyncAt) / 1000.0, s.lastMillis, s.lastAdded, s.totalAdded));
+                if (s.failures > 0) {
+                    sb.append(String.format(Locale.ROOT, " | %d falhas seguidas: %s (nova tentativa em %.1fs)",
+                            s.failures, s.lastError, Math.max(0, s.nextAt - now) / 1e9));
+                }
+                if (s.running) sb.append(" | em andamento");
+            }
+        }
+        if (peers.isEmpty()) sb.append(String.format(Locale.ROOT, "%n  (nenhum peer; use ADD_PEER h p)"));
+        return sb.toString();
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix.endsWith("-") ? prefix + seq.incrementAndGet() : prefix);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
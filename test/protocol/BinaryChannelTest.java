@@ -0,0 +1,73 @@
+package protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Canal bloqueante do lado do servidor: limite de frame por papel e buffer que cresce com os bytes recebidos
+class BinaryChannelTest {
+    // Cabeçalho anunciando um frame enorme antes do HELLO: recusado sem esperar (nem alocar) o payload
+    @Test
+    void largeFrameBeforeRoleIsRejected() throws Exception {
+        try (ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(ss.getInetAddress(), ss.getLocalPort());
+             Socket server = ss.accept()) {
+            OutputStream out = client.getOutputStream();
+            out.write(Wire.preamble(Wire.VERSION));
+            out.write(ByteBuffer.allocate(5).putInt(Wire.MAX_FRAME).put(Wire.IMPORT).array());
+            out.flush();
+            MessageChannel ch = MessageChannel.accept(server);
+            assertThrows(StreamCorruptedException.class, ch::read);
+        }
+    }
+
+    // Peer pode mandar frames grandes; o frame chega aos poucos e o canal volta a um buffer pequeno
+    @Test
+    void peerMayExceedControlLimit() throws Exception {
+        try (ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(ss.getInetAddress(), ss.getLocalPort());
+             Socket server = ss.accept()) {
+            byte[] psv = new byte[3 * Wire.MAX_CONTROL_FRAME];
+            Arrays.fill(psv, (byte) 'x');
+            FrameBuffer frames = new FrameBuffer(64);
+            frames.write(Wire.preamble(Wire.VERSION));
+            frames.put(new Msg.Hello(Msg.Role.PEER));
+            frames.put(new Msg.Import(psv, true));
+            frames.put(new Msg.Credit(2));
+            Thread writer = new Thread(() -> {
+                try { frames.drainTo(client.getOutputStream()); } catch (IOException ignore) {}
+            });
+            writer.start();
+
+            MessageChannel ch = MessageChannel.accept(server);
+            assertEquals(new Msg.Hello(Msg.Role.PEER), ch.read());
+            ch.maxFrame(Wire.MAX_FRAME);
+            assertArrayEquals(psv, ((Msg.Import) ch.read()).psv());
+            assertEquals(new Msg.Credit(2), ch.read());
+            writer.join();
+        }
+    }
+
+    // Frame anunciado e não entregue: fim do stream, não um buffer do tamanho anunciado à espera
+    @Test
+    void truncatedFrameEndsWithEof() throws Exception {
+        try (ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(ss.getInetAddress(), ss.getLocalPort());
+             Socket server = ss.accept()) {
+            OutputStream out = client.getOutputStream();
+            out.write(Wire.preamble(Wire.VERSION));
+            out.write(ByteBuffer.allocate(15).putInt(Wire.MAX_FRAME).put(Wire.IMPORT).put(new byte[10]).array());
+            client.shutdownOutput();
+            MessageChannel ch = MessageChannel.accept(server);
+            ch.maxFrame(Wire.MAX_FRAME);
+            assertThrows(EOFException.class, ch::read);
+        }
+    }
+}
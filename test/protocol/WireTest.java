@@ -0,0 +1,240 @@
+package protocol;
+
+import org.junit.jupiter.api.Test;
+import schema.Question; // Modelo de pergunta
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Codec binário: ida e volta de cada mensagem, frames incompletos e frames malformados ou com contagens
+// impossíveis (que não podem virar alocações gigantes nem exceções fora de StreamCorruptedException)
+class WireTest {
+    private static final Question Q = new Question("Redes", "Qual protocolo é usado para envio de e-mails?",
+            List.of("HTTP", "SMTP", "FTP"), 1);
+    private static final Question UNICODE = new Question("Matemática", "π ≈ 3,14? 🎲", List.of("sim", "não", ""), 2);
+
+    // Uma mensagem de cada tipo (e variantes com campos opcionais)
+    private static final List<Msg> ALL = List.of(
+            new Msg.Hello(Msg.Role.PLAYER), new Msg.Hello(Msg.Role.PEER),
+            new Msg.Hello(Msg.Role.PLAYER, List.of("Redes", "Java")), new Msg.Hello(Msg.Role.PLAYER, List.of(), 8),
+            new Msg.Banner("BANNER:QAQuizServer"), new Msg.Ask(Q), new Msg.Prefetch(List.of(Q, UNICODE)),
+            new Msg.Answer(Q.id(), 1), new Msg.Answer(Q.id(), -1), new Msg.Result(true, 3), new Msg.End(10),
+            new Msg.Quit(), new Msg.Bye(7), new Msg.Export(null), new Msg.Export(List.of(Q, UNICODE)),
+            new Msg.DigestRequest(null), new Msg.DigestRequest(new int[]{0, 5, 63}),
+            new Msg.DigestReply(new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE}),
+            new Msg.Fetch(new int[]{1, 4095}, new long[]{Q.key, UNICODE.key}),
+            new Msg.Batch(List.of(Q), false), new Msg.Batch(List.of(), true), new Msg.Credit(4),
+            new Msg.Import("a|b|c;;d|0\n".getBytes(), false), new Msg.Import(new byte[0], true),
+            new Msg.ImportResult(10, 7, 1, "menos de 2 alternativas: x"));
+
+    // ---------- Ida e volta ----------
+    @Test
+    void gameMessagesRoundTrip() throws Exception {
+        assertEquals(new Msg.Hello(Msg.Role.PEER), roundTrip(new Msg.Hello(Msg.Role.PEER)));
+        assertEquals(new Msg.Hello(Msg.Role.PLAYER, List.of("Redes", "Java")),
+                roundTrip(new Msg.Hello(Msg.Role.PLAYER, List.of("Redes", "Java"))));
+        assertEquals(new Msg.Hello(Msg.Role.PLAYER, List.of(), 8), roundTrip(new Msg.Hello(Msg.Role.PLAYER, List.of(), 8)));
+        assertEquals(new Msg.Banner("olá"), roundTrip(new Msg.Banner("olá")));
+        assertEquals(new Msg.Answer(Q.id(), -1), roundTrip(new Msg.Answer(Q.id(), -1)));
+        assertEquals(new Msg.Answer(Q.id(), Integer.MAX_VALUE), roundTrip(new Msg.Answer(Q.id(), Integer.MAX_VALUE)));
+        assertEquals(new Msg.Result(false, 0), roundTrip(new Msg.Result(false, 0)));
+        assertEquals(new Msg.End(12), roundTrip(new Msg.End(12)));
+        assertEquals(new Msg.Quit(), roundTrip(new Msg.Quit()));
+        assertEquals(new Msg.Bye(0), roundTrip(new Msg.Bye(0)));
+    }
+
+    @Test
+    void questionsRoundTrip() throws Exception {
+        assertSameQuestion(Q, ((Msg.Ask) roundTrip(new Msg.Ask(Q))).question());
+        assertSameQuestion(UNICODE, ((Msg.Ask) roundTrip(new Msg.Ask(UNICODE))).question());
+        assertSameQuestions(List.of(Q, UNICODE), ((Msg.Prefetch) roundTrip(new Msg.Prefetch(List.of(Q, UNICODE)))).questions());
+
+        Msg.Batch b = (Msg.Batch) roundTrip(new Msg.Batch(List.of(UNICODE, Q), true));
+        assertTrue(b.last());
+        assertSameQuestions(List.of(UNICODE, Q), b.questions());
+
+        assertTrue(((Msg.Export) roundTrip(new Msg.Export(null))).isRequest());
+        assertSameQuestions(List.of(Q), ((Msg.Export) roundTrip(new Msg.Export(List.of(Q)))).questions());
+    }
+
+    @Test
+    void syncMessagesRoundTrip() throws Exception {
+        assertNull(((Msg.DigestRequest) roundTrip(new Msg.DigestRequest(null))).groups());
+        assertArrayEquals(new int[]{0, 5, 63}, ((Msg.DigestRequest) roundTrip(new Msg.DigestRequest(new int[]{0, 5, 63}))).groups());
+        long[] digests = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE};
+        assertArrayEquals(digests, ((Msg.DigestReply) roundTrip(new Msg.DigestReply(digests))).digests());
+
+        long[] keys = {Long.MIN_VALUE, -1, 0, Q.key, UNICODE.key};
+        Msg.Fetch f = (Msg.Fetch) roundTrip(new Msg.Fetch(new int[]{1, 4095}, keys));
+        assertArrayEquals(new int[]{1, 4095}, f.leaves());
+        assertArrayEquals(keys, f.haveKeys());
+        assertEquals(new Msg.Credit(4), roundTrip(new Msg.Credit(4)));
+    }
+
+    @Test
+    void importRoundTrip() throws Exception {
+        byte[] psv = "Redes|Qual?|a;;b|1\n".getBytes();
+        Msg.Import i = (Msg.Import) roundTrip(new Msg.Import(psv, true));
+        assertArrayEquals(psv, i.psv());
+        assertTrue(i.last());
+        assertEquals(new Msg.ImportResult(3, 2, 1, "erro"), roundTrip(new Msg.ImportResult(3, 2, 1, "erro")));
+    }
+
+    // ---------- Frames incompletos ----------
+    @Test
+    void incompleteFrameIsNotConsumed() throws Exception {
+        for (Msg m : ALL) {
+            byte[] whole = bytes(m);
+            for (int cut = 0; cut < whole.length; cut++) {
+                ByteBuffer prefix = ByteBuffer.wrap(whole, 0, cut);
+                assertNull(Wire.decode(prefix), m + " cortado em " + cut);
+                assertEquals(0, prefix.position());
+            }
+        }
+    }
+
+    @Test
+    void consecutiveFramesInOneBuffer() throws Exception {
+        ByteBuffer b = ByteBuffer.allocate(1024);
+        Wire.encode(new Msg.Result(true, 1), b);
+        Wire.encode(new Msg.End(1), b);
+        b.put((byte) 0); // Início do próximo frame
+        b.flip();
+        assertEquals(new Msg.Result(true, 1), Wire.decode(b));
+        assertEquals(new Msg.End(1), Wire.decode(b));
+        assertNull(Wire.decode(b));
+        assertEquals(1, b.remaining());
+    }
+
+    // ---------- Frames malformados ----------
+    // Payload cortado com o tamanho do frame corrigido: ou decodifica (campos opcionais no fim) ou é recusado
+    @Test
+    void truncatedPayloadFailsAsCorrupted() {
+        for (Msg m : ALL) {
+            byte[] whole = bytes(m);
+            for (int len = 1; len < whole.length - 4; len++) {
+                ByteBuffer f = ByteBuffer.allocate(4 + len).putInt(len).put(whole, 4, len).flip();
+                try {
+                    Wire.decode(f);
+                } catch (StreamCorruptedException expected) {
+                    // Ok
+                } catch (Exception e) {
+                    fail(m + " com payload de " + len + " bytes lançou " + e);
+                }
+            }
+        }
+    }
+
+    @Test
+    void truncatedQuestionIsRejected() {
+        byte[] whole = bytes(new Msg.Ask(Q));
+        for (int len = 1; len < whole.length - 4; len++) {
+            ByteBuffer f = ByteBuffer.allocate(4 + len).putInt(len).put(whole, 4, len).flip();
+            assertThrows(StreamCorruptedException.class, () -> Wire.decode(f));
+        }
+    }
+
+    // Contagens maiores que o payload são recusadas antes de alocar (2^31-1 em varint: ff ff ff ff 07)
+    @Test
+    void oversizedCountsAreRejected() {
+        byte[] huge = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07};
+        assertCorrupted(Wire.DIGEST, new byte[]{1}, huge);                  // Grupos pedidos
+        assertCorrupted(Wire.DIGEST, new byte[]{2}, huge);                  // Resumos devolvidos
+        assertCorrupted(Wire.FETCH, new byte[0], huge);                     // Folhas
+        assertCorrupted(Wire.FETCH, new byte[]{0}, huge);                   // Keys conhecidas
+        assertCorrupted(Wire.FETCH, new byte[]{0, 2}, new byte[Long.BYTES + 7]);
+        assertCorrupted(Wire.QUESTION, new byte[]{1, 'A', 1, 'B'}, huge);   // Alternativas
+        assertCorrupted(Wire.PREFETCH, new byte[0], huge);
+        assertCorrupted(Wire.BATCH, new byte[]{0}, huge);
+        assertCorrupted(Wire.EXPORT, new byte[0], huge);
+        assertCorrupted(Wire.HELLO, new byte[]{0}, huge);                   // Tópicos
+        assertCorrupted(Wire.IMPORT, new byte[]{0}, huge);                  // Bytes do pedaço
+        assertCorrupted(Wire.BANNER, new byte[0], huge);                    // Tamanho de string
+
+        // 8 resumos anunciados, só 7 presentes
+        assertCorrupted(Wire.DIGEST, new byte[]{2, 8}, new byte[7 * Long.BYTES]);
+    }
+
+    @Test
+    void badFrameHeaderIsRejected() {
+        for (int len : new int[]{0, -1, Wire.MAX_FRAME + 1}) {
+            ByteBuffer b = ByteBuffer.allocate(16).putInt(len).put(Wire.CREDIT).put((byte) 1).flip();
+            assertThrows(StreamCorruptedException.class, () -> Wire.decode(b), "tamanho " + len);
+        }
+        assertCorrupted((byte) 99, new byte[0], new byte[]{1});            // Tipo desconhecido
+        assertCorrupted(Wire.HELLO, new byte[]{5}, new byte[0]);           // Papel inexistente
+        assertCorrupted(Wire.IMPORT, new byte[]{3}, new byte[0]);          // Tipo de pedaço inexistente
+        assertCorrupted(Wire.CREDIT, new byte[0], new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80});
+    }
+
+    // Antes do HELLO (e para jogadores) o limite é menor: o cabeçalho já basta para recusar o frame
+    @Test
+    void controlFrameLimitRejectsLargeFramesEarly() throws Exception {
+        ByteBuffer header = ByteBuffer.allocate(5).putInt(Wire.MAX_CONTROL_FRAME + 1).put(Wire.IMPORT).flip();
+        assertThrows(StreamCorruptedException.class, () -> Wire.decode(header, Wire.MAX_CONTROL_FRAME));
+        assertNull(Wire.decode(header)); // Sem o limite só falta o resto do frame
+
+        Msg big = new Msg.Import(new byte[Wire.MAX_CONTROL_FRAME], false);
+        ByteBuffer frame = ByteBuffer.allocate(2 * Wire.MAX_CONTROL_FRAME);
+        Wire.encode(big, frame);
+        frame.flip();
+        assertThrows(StreamCorruptedException.class, () -> Wire.decode(frame, Wire.MAX_CONTROL_FRAME));
+        assertEquals(Wire.MAX_CONTROL_FRAME, ((Msg.Import) Wire.decode(frame)).psv().length);
+    }
+
+    // Payloads aleatórios de todos os tipos: nenhuma exceção além de StreamCorruptedException
+    @Test
+    void randomPayloadsOnlyFailAsCorrupted() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            byte[] payload = new byte[rnd.nextInt(24)];
+            rnd.nextBytes(payload);
+            byte type = (byte) (1 + rnd.nextInt(Wire.IMPORT));
+            ByteBuffer f = ByteBuffer.allocate(5 + payload.length).putInt(1 + payload.length).put(type).put(payload).flip();
+            try {
+                Wire.decode(f);
+            } catch (StreamCorruptedException expected) {
+                // Ok
+            } catch (Throwable e) {
+                fail("tipo " + type + " lançou " + e);
+            }
+            assertFalse(f.hasRemaining(), "o frame é consumido inteiro");
+        }
+    }
+
+    // ---------- Auxiliares ----------
+    private static byte[] bytes(Msg m) {
+        ByteBuffer b = ByteBuffer.allocate(64 * 1024);
+        Wire.encode(m, b);
+        byte[] out = new byte[b.position()];
+        b.flip().get(out);
+        return out;
+    }
+
+    private static Msg roundTrip(Msg m) throws StreamCorruptedException {
+        ByteBuffer b = ByteBuffer.wrap(bytes(m));
+        Msg decoded = Wire.decode(b);
+        assertFalse(b.hasRemaining(), "sobrou payload de " + m);
+        return decoded;
+    }
+
+    private static void assertCorrupted(byte type, byte[] head, byte[] tail) {
+        int len = 1 + head.length + tail.length;
+        ByteBuffer f = ByteBuffer.allocate(4 + len).putInt(len).put(type).put(head).put(tail).flip();
+        assertThrows(StreamCorruptedException.class, () -> Wire.decode(f), "tipo " + type);
+    }
+
+    private static void assertSameQuestion(Question expected, Question actual) {
+        assertEquals(expected.key, actual.key);
+        assertTrue(expected.sameContent(actual), actual.toPSV());
+    }
+
+    private static void assertSameQuestions(List<Question> expected, List<Question> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) assertSameQuestion(expected.get(i), actual.get(i));
+    }
+}
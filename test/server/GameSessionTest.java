@@ -0,0 +1,50 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import schema.Question; // Modelo de pergunta
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// GameSession no modo pipeline: respostas valem para a pergunta mais antiga e o RTT usa o envio dela
+class GameSessionTest {
+    private static Question[] pool(int n) {
+        Question[] qs = new Question[n];
+        for (int i = 0; i < n; i++) qs[i] = new Question("Redes", "Pergunta " + i + "?", List.of("a", "b", "c"), i % 3);
+        return qs;
+    }
+
+    @Test
+    void answersFollowSendOrderAndKeepEachSendTime() throws Exception {
+        GameSession game = new GameSession(pool(10), 3);
+        Question first = game.deal();
+        long firstSent = game.askedAt();
+        Thread.sleep(2);
+        Question second = game.deal();
+        Question third = game.deal();
+        assertNull(game.deal()); // Janela cheia
+
+        assertTrue(game.answer(first.id(), first.correct));
+        Question fourth = game.deal(); // Repor a janela não muda o envio das que já estavam nela
+        assertTrue(game.askedAt() > firstSent);
+        long secondSent = game.askedAt();
+        assertFalse(game.answer(second.id(), (second.correct + 1) % 3));
+        assertTrue(game.askedAt() >= secondSent); // Agora é a vez da terceira
+        assertTrue(game.answer(third.id(), third.correct));
+        assertTrue(game.answer(fourth.id(), fourth.correct));
+        assertFalse(game.awaiting());
+        assertEquals(3, game.score());
+    }
+
+    @Test
+    void finishesAfterEveryQuestionIsAnswered() {
+        GameSession game = new GameSession(pool(2), 4);
+        Question a = game.deal(), b = game.deal();
+        assertNull(game.deal());
+        assertFalse(game.finished());
+        game.answer(a.id(), a.correct);
+        game.answer(b.id(), b.correct);
+        assertTrue(game.finished());
+    }
+}
@@ -0,0 +1,69 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import schema.Question; // Modelo de pergunta
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Importer: contas do resumo e falha do journal (as perguntas novas não podem ser dadas como persistidas)
+class ImporterTest {
+    @TempDir
+    Path dir;
+
+    private static String psv(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append(new Question("Redes", "Pergunta " + i + "?", List.of("a", "b", "c"), i % 3).toPSV()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Importer.Result importText(Importer importer, String text) {
+        Importer.Session s = importer.open();
+        s.accept(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        return s.finish();
+    }
+
+    @Test
+    void countsNewDuplicateAndInvalidLines() throws Exception {
+        QuestionBank bank = new QuestionBank();
+        Journal journal = new Journal(dir.resolve("data.psv"), w -> {});
+        journal.start();
+        Importer importer = new Importer(bank, journal, new Metrics(bank::size, bank::collisions));
+        importText(importer, psv(0, 10));
+        Importer.Result r = importText(importer, psv(5, 15) + "# comentário\nsem separadores\n");
+        journal.close();
+
+        assertEquals(11, r.lines());
+        assertEquals(5, r.added());
+        assertEquals(5, r.duplicates());
+        assertEquals(1, r.invalid());
+        assertEquals(0, r.unsaved());
+        assertEquals("", r.journalError());
+        assertEquals(15, bank.size());
+    }
+
+    // Journal que não aceita gravação (/dev/full): o resumo diz quantas novas não foram persistidas
+    @Test
+    void journalFailureIsReported() throws Exception {
+        Path full = Path.of("/dev/full");
+        if (!Files.isWritable(full)) return; // Só em sistemas que têm o dispositivo
+        Files.createSymbolicLink(dir.resolve("data.psv.journal"), full);
+        QuestionBank bank = new QuestionBank();
+        Journal journal = new Journal(dir.resolve("data.psv"), w -> {});
+        journal.start();
+        Importer.Result r = importText(new Importer(bank, journal, new Metrics(bank::size, bank::collisions)), psv(0, 10));
+        journal.close();
+
+        assertEquals(10, r.added());
+        assertEquals(10, r.unsaved());
+        assertFalse(r.journalError().isEmpty());
+    }
+}
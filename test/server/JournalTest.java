@@ -0,0 +1,131 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import schema.Question; // Modelo de pergunta
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Journal: recuperação dos registros, linha cortada por uma queda e compactação (inclusive quando o snapshot falha)
+class JournalTest {
+    @TempDir
+    Path dir;
+
+    private static Question q(int i) {
+        return new Question("Redes", "Pergunta " + i + "?", List.of("a", "b", "c"), i % 3);
+    }
+
+    @Test
+    void replayAppliesQuestionsAndPeers() throws Exception {
+        Path data = dir.resolve("data.psv");
+        Journal j = new Journal(data, w -> {});
+        j.start();
+        j.addQuestions(List.of(q(1), q(2))).join();
+        j.addPeer("10.0.0.1:6000").join();
+        j.close();
+
+        List<Question> qs = new ArrayList<>();
+        List<String> peers = new ArrayList<>();
+        assertEquals(3, new Journal(data, w -> {}).replay(qs::add, peers::add));
+        assertEquals(List.of(q(1).key, q(2).key), qs.stream().map(x -> x.key).toList());
+        assertEquals(List.of("10.0.0.1:6000"), peers);
+    }
+
+    // A queda deixou meio registro no fim: ele é descartado e o próximo registro não gruda nele
+    @Test
+    void tornTailIsTruncatedBeforeAppending() throws Exception {
+        Path data = dir.resolve("data.psv");
+        Path journal = dir.resolve("data.psv.journal");
+        Files.writeString(journal, "Q|" + q(1).toPSV() + "\nP|host:po", StandardCharsets.UTF_8);
+
+        List<String> peers = new ArrayList<>();
+        Journal j = new Journal(data, w -> {});
+        assertEquals(1, j.replay(x -> {}, peers::add));
+        assertEquals(List.of(), peers); // "host:po" não é um peer
+        j.start();
+        j.addPeer("host:6001").join();
+        j.close();
+
+        assertEquals("Q|" + q(1).toPSV() + "\nP|host:6001\n", Files.readString(journal, StandardCharsets.UTF_8));
+        assertEquals(2, new Journal(data, w -> {}).replay(x -> {}, peers::add));
+        assertEquals(List.of("host:6001"), peers);
+    }
+
+    @Test
+    void peerRecordsAreValidated() {
+        assertEquals("a.b:1", Journal.peer("a.b:1"));
+        assertEquals("::1:6000", Journal.peer("::1:6000"));
+        for (String bad : List.of("", "host", ":6000", "host:", "host:0", "host:65536", "host:poQ|x", "a b:1", "a,b:1")) {
+            assertThrows(IllegalArgumentException.class, () -> Journal.peer(bad), bad);
+        }
+    }
+
+    // Passar do limite rotaciona o journal e grava um snapshot; o journal novo começa vazio
+    @Test
+    void compactionWritesSnapshotAndRotates() throws Exception {
+        Path data = dir.resolve("data.psv");
+        AtomicInteger snapshots = new AtomicInteger();
+        Journal j = new Journal(data, w -> { snapshots.incrementAndGet(); w.write("#PEERS "); w.newLine(); });
+        j.start();
+        fillPastLimit(j);
+        awaitCompaction(data, snapshots, 1);
+        j.addPeer("host:6001").join();
+        j.close();
+
+        assertEquals("#PEERS \n", Files.readString(data, StandardCharsets.UTF_8));
+        List<String> peers = new ArrayList<>();
+        assertEquals(1, new Journal(data, w -> {}).replay(x -> {}, peers::add)); // Só o que veio depois da rotação
+        assertEquals(List.of("host:6001"), peers);
+    }
+
+    // Snapshot que falha: o .journal.old fica (não é substituído na próxima rotação) e a gravação continua
+    @Test
+    void failedSnapshotKeepsRotatedJournal() throws Exception {
+        Path data = dir.resolve("data.psv");
+        AtomicInteger snapshots = new AtomicInteger();
+        Journal j = new Journal(data, w -> {
+            if (snapshots.incrementAndGet() == 1) throw new IOException("disco cheio");
+            w.write("#PEERS "); w.newLine();
+        });
+        j.start();
+        fillPastLimit(j);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (snapshots.get() < 1 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertTrue(Files.exists(dir.resolve("data.psv.journal.old")));
+
+        j.addPeer("host:6001").join(); // Journal atual segue aceitando registros
+        List<String> peers = new ArrayList<>();
+        new Journal(data, w -> {}).replay(x -> {}, peers::add);
+        assertEquals(List.of("host:6001"), peers);
+
+        fillPastLimit(j); // Nova tentativa cobre os dois journals
+        awaitCompaction(data, snapshots, 2);
+        j.close();
+    }
+
+    private static void fillPastLimit(Journal j) {
+        List<Question> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) batch.add(q(i));
+        long bytes = batch.stream().mapToLong(x -> ("Q|" + x.toPSV() + "\n").getBytes(StandardCharsets.UTF_8).length).sum();
+        CompletableFuture<Void> last = null;
+        for (long written = 0; written < Journal.COMPACT_BYTES; written += bytes) last = j.addQuestions(batch);
+        last.join(); // O lote que passa do limite é o último: o journal novo começa vazio
+    }
+
+    private static void awaitCompaction(Path data, AtomicInteger snapshots, int expected) throws InterruptedException {
+        Path rotated = data.resolveSibling("data.psv.journal.old");
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while ((snapshots.get() < expected || Files.exists(rotated)) && System.nanoTime() < deadline) Thread.sleep(10);
+        assertTrue(snapshots.get() >= expected);
+        assertFalse(Files.exists(rotated));
+    }
+}
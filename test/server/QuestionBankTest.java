@@ -0,0 +1,92 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import schema.Question; // Modelo de pergunta
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Resumos da sincronização: iguais para o mesmo conjunto (em qualquer ordem de inserção), diferentes só nas
+// folhas que diferem; e a divisão das folhas em FETCHs de tamanho limitado
+class QuestionBankTest {
+    private static Question q(int i) {
+        return new Question("Tópico " + (i % 7), "Pergunta " + i + "?", List.of("a", "b", "c"), i % 3);
+    }
+
+    private static QuestionBank bank(List<Question> qs) {
+        QuestionBank b = new QuestionBank();
+        for (Question q : qs) b.add(q);
+        return b;
+    }
+
+    @Test
+    void digestsDependOnlyOnContent() {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) qs.add(q(i));
+        QuestionBank a = bank(qs);
+        Collections.shuffle(qs, new Random(1));
+        QuestionBank b = new QuestionBank();
+        b.addAll(qs.subList(0, 2_000));
+        for (Question q : qs.subList(2_000, qs.size())) b.add(q);
+        b.add(qs.get(0)); // Repetida não muda nada
+
+        assertArrayEquals(a.groupDigests(), b.groupDigests());
+        int[] all = new int[QuestionBank.GROUPS];
+        Arrays.setAll(all, g -> g);
+        assertArrayEquals(a.leafDigests(all), b.leafDigests(all));
+    }
+
+    @Test
+    void onlyTheLeafOfAMissingQuestionDiffers() {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) qs.add(q(i));
+        QuestionBank full = bank(qs);
+        QuestionBank partial = bank(qs.subList(1, qs.size()));
+
+        int leaf = QuestionBank.leafOf(qs.get(0).key);
+        int group = leaf / QuestionBank.LEAVES_PER_GROUP;
+        long[] fg = full.groupDigests(), pg = partial.groupDigests();
+        for (int g = 0; g < QuestionBank.GROUPS; g++) assertEquals(g == group, fg[g] != pg[g], "grupo " + g);
+        long[] fl = full.leafDigests(new int[]{group}), pl = partial.leafDigests(new int[]{group});
+        for (int l = 0; l < QuestionBank.LEAVES_PER_GROUP; l++) {
+            assertEquals(group * QuestionBank.LEAVES_PER_GROUP + l == leaf, fl[l] != pl[l], "folha " + l);
+        }
+        assertEquals(fl[leaf % QuestionBank.LEAVES_PER_GROUP] ^ qs.get(0).key, pl[leaf % QuestionBank.LEAVES_PER_GROUP]);
+    }
+
+    @Test
+    void keysInListsLocalKeysSorted() {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) qs.add(q(i));
+        QuestionBank b = bank(qs);
+        int[] leaves = {QuestionBank.leafOf(qs.get(0).key), QuestionBank.leafOf(qs.get(1).key)};
+        long[] expected = qs.stream().mapToLong(x -> x.key)
+                .filter(k -> QuestionBank.leafOf(k) == leaves[0] || QuestionBank.leafOf(k) == leaves[1])
+                .distinct().sorted().toArray();
+        assertArrayEquals(expected, b.keysIn(leaves));
+    }
+
+    // Cada faixa tem no máximo maxKeys keys locais (ou uma folha só); juntas cobrem todas as folhas, em ordem
+    @Test
+    void fetchRangesAreBoundedAndCoverAllLeaves() {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) qs.add(q(i));
+        QuestionBank b = bank(qs);
+        int[] leaves = new int[QuestionBank.LEAVES];
+        Arrays.setAll(leaves, l -> l);
+
+        for (int maxKeys : new int[]{1, 50, 1_000, QuestionBank.FETCH_MAX_KEYS}) {
+            List<int[]> ranges = b.fetchRanges(leaves, maxKeys);
+            int[] joined = ranges.stream().flatMapToInt(Arrays::stream).toArray();
+            assertArrayEquals(leaves, joined, "maxKeys " + maxKeys);
+            for (int[] r : ranges) assertTrue(r.length == 1 || b.keysIn(r).length <= maxKeys, "maxKeys " + maxKeys);
+        }
+        assertEquals(1, b.fetchRanges(leaves, QuestionBank.FETCH_MAX_KEYS).size());
+        assertEquals(List.of(), b.fetchRanges(new int[0], 10));
+    }
+}
@@ -0,0 +1,115 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import schema.Question; // Modelo de pergunta
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tabela de perguntas por key: inserção, busca, sondagem com posições disputadas, crescimento,
+// iteração e leituras sem lock concorrentes com inserções
+class QuestionTableTest {
+    private static Question q(int i) {
+        return new Question("Redes", "Pergunta " + i + "?", List.of("a", "b"), i % 2);
+    }
+
+    @Test
+    void putAndGet() {
+        QuestionTable t = new QuestionTable();
+        Question a = q(1);
+        assertNull(t.putIfAbsent(a));
+        assertSame(a, t.putIfAbsent(q(1))); // Mesma key: devolve a que já estava
+        assertSame(a, t.get(a.key));
+        assertTrue(t.containsKey(a.key));
+        assertNull(t.get(q(2).key));
+        assertEquals(1, t.size());
+    }
+
+    // Keys com os mesmos bits baixos caem na mesma posição inicial e seguem a sondagem linear
+    @Test
+    void collidingSlotsAreProbed() {
+        List<Question> same = new ArrayList<>();
+        for (int i = 0; same.size() < 5; i++) if ((q(i).key & 15) == 3) same.add(q(i));
+        QuestionTable t = new QuestionTable();
+        for (Question x : same) assertNull(t.putIfAbsent(x));
+        for (Question x : same) assertSame(x, t.get(x.key));
+        assertNull(t.get(same.get(0).key ^ (1L << 40))); // Mesmo início de sondagem, key ausente
+    }
+
+    @Test
+    void growKeepsEveryQuestion() {
+        QuestionTable t = new QuestionTable();
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) qs.add(q(i));
+        Question[] prev = t.putAllAbsent(qs.subList(0, 5_000));
+        assertTrue(Arrays.stream(prev).allMatch(Objects::isNull));
+        for (Question x : qs.subList(5_000, qs.size())) assertNull(t.putIfAbsent(x));
+        assertEquals(10_000, t.size());
+        for (Question x : qs) assertSame(x, t.get(x.key));
+    }
+
+    // Repetida dentro do próprio lote: a segunda aponta para a primeira
+    @Test
+    void batchReportsDuplicates() {
+        QuestionTable t = new QuestionTable();
+        Question a = q(1);
+        t.putIfAbsent(a);
+        Question b = q(2);
+        Question[] prev = t.putAllAbsent(List.of(q(1), b, q(2)));
+        assertSame(a, prev[0]);
+        assertNull(prev[1]);
+        assertSame(b, prev[2]);
+    }
+
+    @Test
+    void iterationVisitsEachQuestionOnce() {
+        QuestionTable t = new QuestionTable();
+        assertFalse(t.iterator().hasNext());
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) { t.putIfAbsent(q(i)); keys.add(q(i).key); }
+        List<Long> seen = new ArrayList<>();
+        for (Question x : t) seen.add(x.key);
+        assertEquals(1_000, seen.size());
+        assertEquals(keys, new HashSet<>(seen));
+        assertEquals(1_000, t.toArray(new Question[0]).length);
+        Iterator<Question> it = new QuestionTable().iterator();
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    // Leitores sem lock enquanto a tabela cresce: uma key encontrada sempre traz a pergunta inteira,
+    // e o que já foi inserido antes da leitura começar é sempre encontrado
+    @Test
+    void concurrentReadersSeeCompleteEntries() throws Exception {
+        QuestionTable t = new QuestionTable();
+        Question[] qs = new Question[50_000];
+        for (int i = 0; i < qs.length; i++) qs[i] = q(i);
+        AtomicInteger published = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                Random rnd = new Random();
+                while (!done.get()) {
+                    int n = published.get();
+                    if (n == 0) continue;
+                    Question x = qs[rnd.nextInt(n)];
+                    Question found = t.get(x.key);
+                    if (found != x) errors.add(new AssertionError("pergunta " + x.text + " não encontrada"));
+                    for (Question y : t) if (y == null || y.text == null) errors.add(new AssertionError("entrada incompleta"));
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 0; i < qs.length; i++) {
+            t.putIfAbsent(qs[i]);
+            published.set(i + 1);
+        }
+        done.set(true);
+        for (Thread r : readers) r.join();
+        assertEquals(List.of(), errors);
+    }
+}
@@ -0,0 +1,79 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import protocol.Msg;
+import schema.Question; // Modelo de pergunta
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// PULL por resumos entre dois servidores reais (loopback): só as perguntas que faltam são transferidas,
+// e depois dos dois PULLs os resumos ficam iguais
+class SyncTest {
+    @TempDir
+    Path dir;
+
+    private static Question q(int i) {
+        return new Question("Redes", "Pergunta " + i + "?", List.of("a", "b", "c", "d"), i % 4);
+    }
+
+    @Test
+    void pullTransfersOnlyTheDelta() throws Exception {
+        for (ConnectionEngine engine : new ConnectionEngine[]{ConnectionEngine.THREAD, ConnectionEngine.NIO}) {
+            int pa = freePort(), pb = freePort();
+            QAQuizServer a = start(data("a-" + engine, 0, 3_000), engine, pa);
+            QAQuizServer b = start(data("b-" + engine, 2_000, 4_500), engine, pb);
+            try {
+                assertEquals(2_000, b.pull("127.0.0.1", pa, true)); // 0..1999, que b não tinha
+                assertEquals(0, b.pull("127.0.0.1", pa, true));     // Nada novo na segunda vez
+                assertEquals(1_500, a.pull("127.0.0.1", pb, true)); // 3000..4499
+                assertArrayEquals(digests(a), digests(b), engine.name());
+                assertEquals(0, a.pull("127.0.0.1", pb, true));
+            } finally {
+                a.close();
+                b.close();
+            }
+        }
+    }
+
+    private static long[] digests(QAQuizServer s) {
+        return ((Msg.DigestReply) s.peerReply(new Msg.DigestRequest(null), null)).digests();
+    }
+
+    // Arquivo de dados com as perguntas [from, to)
+    private Path data(String name, int from, int to) throws IOException {
+        Path file = dir.resolve(name + ".psv");
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("#PEERS "); w.newLine();
+            for (int i = from; i < to; i++) { w.write(q(i).toPSV()); w.newLine(); }
+        }
+        return file;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) { return s.getLocalPort(); }
+    }
+
+    private static QAQuizServer start(Path data, ConnectionEngine engine, int port) throws Exception {
+        QAQuizServer server = new QAQuizServer("127.0.0.1", port, data.toString(), engine);
+        Thread t = new Thread(() -> {
+            try { server.serveForever(); } catch (IOException ignore) {}
+        }, "sync-test-" + port);
+        t.setDaemon(true);
+        t.start();
+        for (int i = 0; i < 500; i++) {
+            try (Socket probe = new Socket("127.0.0.1", port)) { return server; }
+            catch (IOException notYet) { Thread.sleep(10); }
+        }
+        throw new IOException("servidor não abriu a porta " + port);
+    }
+}